@@ -3,8 +3,10 @@ package com.example.api;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @Slf4j
 public class ApiApplication {
 
@@ -13,10 +15,16 @@ public class ApiApplication {
         log.info("API Service started successfully!");
         log.info("Available endpoints:");
         log.info("  GET  /api/sensors/latest?sensorId=101  - Get latest reading for a sensor");
-        log.info("  GET  /api/sensors/all                  - Get all latest readings");
+        log.info("  GET  /api/sensors/all?cursor=&limit=   - Get latest readings, one page at a time");
+        log.info("  GET  /api/sensors/changes?since=       - Get readings changed since a data version");
+        log.info("  GET  /api/sensors/query?metric=&min=&max= - Get sensors with a value in a range");
         log.info("  POST /api/sensors/batch               - Get readings for multiple sensors");
-        log.info("  GET  /api/sensors/statistics          - Get sensor statistics");
-        log.info("  GET  /api/sensors/list                - Get all sensor IDs");
+        log.info("  GET  /api/sensors/stream?sensorIds=    - Server-Sent Events stream of changed readings");
+        log.info("  GET  /api/sensors/export?format=csv    - Stream all readings as NDJSON or CSV");
+        log.info("  GET  /api/sensors/statistics?groupBy=  - Get sensor statistics and percentiles");
+        log.info("  GET  /api/sensors/analytics?groupBy=time - Aggregate recent reading history");
+        log.info("  GET  /api/sensors/history?from=        - Aggregate archived readings");
+        log.info("  GET  /api/sensors/list?cursor=&limit=  - Get sensor IDs, one page at a time");
         log.info("  GET  /api/sensors/health              - Health check");
         log.info("  GET  /swagger-ui.html                 - API Documentation");
     }
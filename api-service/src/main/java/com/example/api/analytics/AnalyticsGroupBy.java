@@ -0,0 +1,31 @@
+package com.example.api.analytics;
+
+/**
+ * Ways analytics results can be grouped: by a dictionary-encoded attribute or
+ * by fixed-width time buckets.
+ */
+public enum AnalyticsGroupBy {
+    LOCATION("location"),
+    SENSOR_TYPE("sensorType"),
+    TIME("time");
+
+    private final String parameterName;
+
+    AnalyticsGroupBy(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    // Accepts the request parameter name, e.g. "location", "sensorType" or "time"
+    public static AnalyticsGroupBy fromParameter(String name) {
+        for (AnalyticsGroupBy groupBy : values()) {
+            if (groupBy.parameterName.equalsIgnoreCase(name)) {
+                return groupBy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown groupBy: " + name);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.api.analytics;
+
+import com.example.api.model.SensorMetric;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsQuery {
+    // Readings with fromMillis <= timestamp < toMillis (epoch millis)
+    private long fromMillis;
+    private long toMillis;
+    // Null matches any value
+    private String location;
+    private String sensorType;
+    // Optional value range on one metric; null bounds are open
+    private SensorMetric metric;
+    private Double min;
+    private Double max;
+    // Null aggregates all matching readings into one group
+    private AnalyticsGroupBy groupBy;
+    // Bucket width when grouping by time
+    private long intervalMillis;
+}
@@ -0,0 +1,64 @@
+package com.example.api.analytics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count plus sum, min and max of temperature and pressure for one group.
+ * Partial aggregates from different chunks are merged.
+ */
+public class GroupAggregate {
+
+    private long count;
+    private double temperatureSum;
+    private double temperatureMin = Double.POSITIVE_INFINITY;
+    private double temperatureMax = Double.NEGATIVE_INFINITY;
+    private double pressureSum;
+    private double pressureMin = Double.POSITIVE_INFINITY;
+    private double pressureMax = Double.NEGATIVE_INFINITY;
+
+    public void add(double temperature, double pressure) {
+        count++;
+        temperatureSum += temperature;
+        temperatureMin = Math.min(temperatureMin, temperature);
+        temperatureMax = Math.max(temperatureMax, temperature);
+        pressureSum += pressure;
+        pressureMin = Math.min(pressureMin, pressure);
+        pressureMax = Math.max(pressureMax, pressure);
+    }
+
+    public void merge(GroupAggregate other) {
+        count += other.count;
+        temperatureSum += other.temperatureSum;
+        temperatureMin = Math.min(temperatureMin, other.temperatureMin);
+        temperatureMax = Math.max(temperatureMax, other.temperatureMax);
+        pressureSum += other.pressureSum;
+        pressureMin = Math.min(pressureMin, other.pressureMin);
+        pressureMax = Math.max(pressureMax, other.pressureMax);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("temperature", summary(temperatureSum, temperatureMin, temperatureMax));
+        result.put("pressure", summary(pressureSum, pressureMin, pressureMax));
+        return result;
+    }
+
+    private Map<String, Object> summary(double sum, double min, double max) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("avg", count == 0 ? 0.0 : round(sum / count));
+        summary.put("min", count == 0 ? 0.0 : round(min));
+        summary.put("max", count == 0 ? 0.0 : round(max));
+        return summary;
+    }
+
+    // Round to 2 decimal places
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.api.analytics;
+
+import com.example.api.model.SensorMetric;
+
+import java.util.Map;
+
+/**
+ * Fixed-capacity block of readings stored column by column in primitive
+ * arrays, with min/max zone maps for time and both metrics.
+ *
+ * One ingest thread appends; queries read concurrently up to the published
+ * size, so they never see a partially written row. Filters run as tight loops
+ * over one column at a time, narrowing a selection vector of row numbers, and
+ * a zone map that excludes the query skips the chunk without touching a row.
+ */
+public class ReadingChunk {
+
+    private final long[] timestamps;
+    private final double[] temperatures;
+    private final double[] pressures;
+    private final int[] locations;
+    private final int[] sensorTypes;
+
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private double minTemperature = Double.POSITIVE_INFINITY;
+    private double maxTemperature = Double.NEGATIVE_INFINITY;
+    private double minPressure = Double.POSITIVE_INFINITY;
+    private double maxPressure = Double.NEGATIVE_INFINITY;
+
+    // Written after the row and its zone map updates, so readers see complete rows
+    private volatile int size;
+
+    public ReadingChunk(int capacity) {
+        this(new long[capacity], new double[capacity], new double[capacity], new int[capacity], new int[capacity]);
+    }
+
+    private ReadingChunk(long[] timestamps, double[] temperatures, double[] pressures, int[] locations, int[] sensorTypes) {
+        this.timestamps = timestamps;
+        this.temperatures = temperatures;
+        this.pressures = pressures;
+        this.locations = locations;
+        this.sensorTypes = sensorTypes;
+    }
+
+    // Full, immutable chunk over existing columns of equal length, e.g. decoded from an archive segment
+    public static ReadingChunk of(long[] timestamps, double[] temperatures, double[] pressures,
+                                  int[] locations, int[] sensorTypes) {
+        ReadingChunk chunk = new ReadingChunk(timestamps, temperatures, pressures, locations, sensorTypes);
+        for (int row = 0; row < timestamps.length; row++) {
+            chunk.minTimestamp = Math.min(chunk.minTimestamp, timestamps[row]);
+            chunk.maxTimestamp = Math.max(chunk.maxTimestamp, timestamps[row]);
+            chunk.minTemperature = Math.min(chunk.minTemperature, temperatures[row]);
+            chunk.maxTemperature = Math.max(chunk.maxTemperature, temperatures[row]);
+            chunk.minPressure = Math.min(chunk.minPressure, pressures[row]);
+            chunk.maxPressure = Math.max(chunk.maxPressure, pressures[row]);
+        }
+        chunk.size = timestamps.length;
+        return chunk;
+    }
+
+    // False when the chunk is full
+    public boolean append(long timestamp, double temperature, double pressure, int location, int sensorType) {
+        int row = size;
+        if (row == timestamps.length) {
+            return false;
+        }
+        timestamps[row] = timestamp;
+        temperatures[row] = temperature;
+        pressures[row] = pressure;
+        locations[row] = location;
+        sensorTypes[row] = sensorType;
+
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        minTemperature = Math.min(minTemperature, temperature);
+        maxTemperature = Math.max(maxTemperature, temperature);
+        minPressure = Math.min(minPressure, pressure);
+        maxPressure = Math.max(maxPressure, pressure);
+        size = row + 1;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMaxTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : maxTimestamp;
+    }
+
+    /**
+     * Adds the rows matching the query to the groups, keyed by dictionary code
+     * (attribute grouping), bucket start (time grouping) or 0 (no grouping).
+     * Codes are {@link ValueDictionary#ABSENT} when the query names a value no
+     * row has; -2 when the attribute is not filtered. Returns the number of
+     * matching rows.
+     */
+    public int aggregate(AnalyticsQuery query, int locationCode, int sensorTypeCode,
+                         Map<Long, GroupAggregate> groups) {
+        int rows = size;
+        if (rows == 0 || locationCode == ValueDictionary.ABSENT || sensorTypeCode == ValueDictionary.ABSENT
+                || !overlaps(query)) {
+            return 0;
+        }
+
+        int[] selection = new int[rows];
+        int selected = 0;
+        long from = query.getFromMillis();
+        long to = query.getToMillis();
+        if (minTimestamp >= from && maxTimestamp < to) {
+            for (int row = 0; row < rows; row++) {
+                selection[selected++] = row;
+            }
+        } else {
+            for (int row = 0; row < rows; row++) {
+                long timestamp = timestamps[row];
+                if (timestamp >= from && timestamp < to) {
+                    selection[selected++] = row;
+                }
+            }
+        }
+
+        if (locationCode >= 0) {
+            selected = selectEqual(locations, locationCode, selection, selected);
+        }
+        if (sensorTypeCode >= 0) {
+            selected = selectEqual(sensorTypes, sensorTypeCode, selection, selected);
+        }
+        if (query.getMetric() != null) {
+            double[] values = query.getMetric() == SensorMetric.TEMPERATURE ? temperatures : pressures;
+            double min = query.getMin() == null ? Double.NEGATIVE_INFINITY : query.getMin();
+            double max = query.getMax() == null ? Double.POSITIVE_INFINITY : query.getMax();
+            selected = selectRange(values, min, max, selection, selected);
+        }
+
+        if (selected == 0) {
+            return 0;
+        }
+        if (query.getGroupBy() == null) {
+            GroupAggregate group = groups.computeIfAbsent(0L, key -> new GroupAggregate());
+            for (int i = 0; i < selected; i++) {
+                int row = selection[i];
+                group.add(temperatures[row], pressures[row]);
+            }
+            return selected;
+        }
+
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            groups.computeIfAbsent(groupKey(query, row), key -> new GroupAggregate())
+                    .add(temperatures[row], pressures[row]);
+        }
+        return selected;
+    }
+
+    // Zone map check: can any row match the time and value range?
+    private boolean overlaps(AnalyticsQuery query) {
+        if (maxTimestamp < query.getFromMillis() || minTimestamp >= query.getToMillis()) {
+            return false;
+        }
+        if (query.getMetric() == null) {
+            return true;
+        }
+        double min = query.getMetric() == SensorMetric.TEMPERATURE ? minTemperature : minPressure;
+        double max = query.getMetric() == SensorMetric.TEMPERATURE ? maxTemperature : maxPressure;
+        return (query.getMin() == null || max >= query.getMin()) && (query.getMax() == null || min <= query.getMax());
+    }
+
+    private long groupKey(AnalyticsQuery query, int row) {
+        switch (query.getGroupBy()) {
+            case LOCATION:
+                return locations[row];
+            case SENSOR_TYPE:
+                return sensorTypes[row];
+            default:
+                long timestamp = timestamps[row];
+                return timestamp - Math.floorMod(timestamp, query.getIntervalMillis());
+        }
+    }
+
+    private static int selectEqual(int[] column, int code, int[] selection, int selected) {
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            if (column[row] == code) {
+                selection[kept++] = row;
+            }
+        }
+        return kept;
+    }
+
+    private static int selectRange(double[] column, double min, double max, int[] selection, int selected) {
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            double value = column[row];
+            if (value >= min && value <= max) {
+                selection[kept++] = row;
+            }
+        }
+        return kept;
+    }
+}
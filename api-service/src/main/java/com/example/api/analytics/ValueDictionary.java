@@ -0,0 +1,50 @@
+package com.example.api.analytics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for low-cardinality string columns such as location and
+ * sensor type: each distinct value gets a small integer code, so chunks store
+ * and compare ints instead of strings.
+ *
+ * Codes are only assigned by the single ingest thread; lookups and decoding
+ * are safe from any thread.
+ */
+public class ValueDictionary {
+
+    // Code of a value that was never seen, so no row can match it
+    public static final int ABSENT = -1;
+    private static final String UNKNOWN = "unknown";
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[0];
+
+    public int encode(String value) {
+        String key = value == null || value.isEmpty() ? UNKNOWN : value;
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        String[] current = values;
+        String[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = key;
+        // Publish the value before the code so a reader that finds the code can decode it
+        values = grown;
+        codes.put(key, current.length);
+        return current.length;
+    }
+
+    public int lookup(String value) {
+        return codes.getOrDefault(value, ABSENT);
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return values.length;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.api.archive;
+
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.analytics.ReadingChunk;
+import com.example.api.model.SensorMetric;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of one archive segment file (see {@link SegmentFormat}),
+ * memory-mapped so the header and compressed columns are read straight from
+ * the page cache.
+ *
+ * Opening a segment reads only its header: the zone maps decide whether a
+ * query can match anything in it, and the columns are decompressed only for
+ * segments that pass.
+ */
+public class ArchiveSegment {
+
+    private static final int TIMESTAMPS = 0;
+    private static final int TEMPERATURES = 1;
+    private static final int PRESSURES = 2;
+    private static final int LOCATIONS = 4;
+    private static final int SENSOR_TYPES = 5;
+
+    private final MappedByteBuffer buffer;
+    private final int rows;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final double minTemperature;
+    private final double maxTemperature;
+    private final double minPressure;
+    private final double maxPressure;
+    private final List<String> locations;
+    private final List<String> sensorTypes;
+    private final int[] columnOffsets = new int[SegmentFormat.COLUMN_COUNT];
+    private final int[] columnLengths = new int[SegmentFormat.COLUMN_COUNT];
+
+    private ArchiveSegment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != SegmentFormat.MAGIC || header.getShort() != SegmentFormat.VERSION) {
+            throw new IOException("Not an archive segment of version " + SegmentFormat.VERSION);
+        }
+        rows = header.getInt();
+        minTimestamp = header.getLong();
+        maxTimestamp = header.getLong();
+        minTemperature = header.getDouble();
+        maxTemperature = header.getDouble();
+        minPressure = header.getDouble();
+        maxPressure = header.getDouble();
+        skipDictionary(header);
+        locations = readDictionary(header);
+        sensorTypes = readDictionary(header);
+
+        for (int column = 0; column < SegmentFormat.COLUMN_COUNT; column++) {
+            columnLengths[column] = header.getInt();
+        }
+        int offset = header.position();
+        for (int column = 0; column < SegmentFormat.COLUMN_COUNT; column++) {
+            columnOffsets[column] = offset;
+            offset += columnLengths[column];
+        }
+    }
+
+    public static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new ArchiveSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    // Zone map check: can any row match the query's time range, value range and attribute values?
+    public boolean overlaps(AnalyticsQuery query) {
+        if (maxTimestamp < query.getFromMillis() || minTimestamp >= query.getToMillis()) {
+            return false;
+        }
+        if ((query.getLocation() != null && !locations.contains(query.getLocation()))
+                || (query.getSensorType() != null && !sensorTypes.contains(query.getSensorType()))) {
+            return false;
+        }
+        if (query.getMetric() == null) {
+            return true;
+        }
+        double min = query.getMetric() == SensorMetric.TEMPERATURE ? minTemperature : minPressure;
+        double max = query.getMetric() == SensorMetric.TEMPERATURE ? maxTemperature : maxPressure;
+        return (query.getMin() == null || max >= query.getMin()) && (query.getMax() == null || min <= query.getMax());
+    }
+
+    // Decompresses the columns; location and sensor type stay codes into this segment's dictionaries
+    public ReadingChunk decode() throws IOException {
+        ByteBuffer timestampBytes = inflate(TIMESTAMPS, rows * Long.BYTES);
+        long[] timestamps = new long[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            previous += timestampBytes.getLong();
+            timestamps[row] = previous;
+        }
+
+        double[] temperatures = new double[rows];
+        inflate(TEMPERATURES, rows * Double.BYTES).asDoubleBuffer().get(temperatures);
+        double[] pressures = new double[rows];
+        inflate(PRESSURES, rows * Double.BYTES).asDoubleBuffer().get(pressures);
+        int[] locationCodes = new int[rows];
+        inflate(LOCATIONS, rows * Integer.BYTES).asIntBuffer().get(locationCodes);
+        int[] sensorTypeCodes = new int[rows];
+        inflate(SENSOR_TYPES, rows * Integer.BYTES).asIntBuffer().get(sensorTypeCodes);
+
+        return ReadingChunk.of(timestamps, temperatures, pressures, locationCodes, sensorTypeCodes);
+    }
+
+    // Code of the value in this segment's location dictionary, -1 when absent
+    public int locationCode(String location) {
+        return locations.indexOf(location);
+    }
+
+    public int sensorTypeCode(String sensorType) {
+        return sensorTypes.indexOf(sensorType);
+    }
+
+    public String location(int code) {
+        return locations.get(code);
+    }
+
+    public String sensorType(int code) {
+        return sensorTypes.get(code);
+    }
+
+    private ByteBuffer inflate(int column, int length) throws IOException {
+        ByteBuffer compressed = buffer.slice(columnOffsets[column], columnLengths[column]);
+        ByteBuffer decompressed = ByteBuffer.allocate(length);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            while (decompressed.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(decompressed) == 0 && inflater.needsInput()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive segment column " + column, e);
+        } finally {
+            inflater.end();
+        }
+        if (decompressed.hasRemaining()) {
+            throw new IOException("Truncated archive segment column " + column);
+        }
+        return decompressed.flip();
+    }
+
+    private static void skipDictionary(ByteBuffer header) {
+        int entries = header.getInt();
+        for (int i = 0; i < entries; i++) {
+            int length = header.getShort() & 0xFFFF;
+            header.position(header.position() + length);
+        }
+    }
+
+    private static List<String> readDictionary(ByteBuffer header) {
+        int entries = header.getInt();
+        List<String> values = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            byte[] bytes = new byte[header.getShort() & 0xFFFF];
+            header.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
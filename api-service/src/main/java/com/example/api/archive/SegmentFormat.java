@@ -0,0 +1,46 @@
+package com.example.api.archive;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * On-disk layout of the archive segments written by the consumer-service:
+ * immutable files holding one batch of readings from a single hour, stored
+ * column by column. The consumer writes the same layout; keep both copies
+ * in step.
+ *
+ * Segments live under {@code <archive dir>/<yyyy-MM-dd>/<HH>/} (UTC hour of
+ * the readings), so a time-range query only lists the hours it covers.
+ *
+ * Layout (big-endian):
+ * - int magic, short version, int row count
+ * - zone maps: long min/max timestamp (epoch millis), double min/max
+ *   temperature, double min/max pressure
+ * - three dictionaries, sensor id, location and sensor type: int entry count,
+ *   then per entry a short byte length and the UTF-8 bytes
+ * - int compressed length of each column, in column order
+ * - the columns, each Deflate-compressed: timestamps as longs, each stored as
+ *   the difference to the previous row (rows are sorted by time); temperatures
+ *   and pressures as doubles; sensor id, location and type as int dictionary codes
+ */
+public final class SegmentFormat {
+
+    public static final int MAGIC = 0x53454731;
+    public static final short VERSION = 1;
+    public static final String EXTENSION = ".seg";
+    public static final int COLUMN_COUNT = 6;
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("HH");
+
+    private SegmentFormat() {
+    }
+
+    // Partition directory, relative to the archive root, for readings of the hour starting at hourStart
+    public static String partition(long hourStart) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(hourStart), ZoneOffset.UTC);
+        return DAY.format(time) + "/" + HOUR.format(time);
+    }
+}
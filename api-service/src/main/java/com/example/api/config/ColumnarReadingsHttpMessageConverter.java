@@ -0,0 +1,131 @@
+package com.example.api.config;
+
+import com.example.api.model.SensorReading;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes lists (and maps keyed by sensor ID) of readings as parallel arrays,
+ * one per field, instead of one object per reading:
+ *
+ * {"count":2,"sensorId":["101","102"],"sensorType":[...],"location":[...],
+ *  "temperature":[25.5,19.0],"pressure":[...],"timestamp":[1704110400000,...]}
+ *
+ * Field names appear once per response rather than once per reading and
+ * timestamps are epoch milliseconds (the reading's local time in the server's zone),
+ * which makes bulk responses much smaller and cheaper to parse.
+ *
+ * The format is only used when a client asks for it by media type; it never
+ * counts as producible for a wildcard Accept, so JSON stays the default.
+ */
+public class ColumnarReadingsHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType COLUMNAR_JSON = MediaType.parseMediaType("application/vnd.sensors.columnar+json");
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ColumnarReadingsHttpMessageConverter() {
+        super(COLUMNAR_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (mediaType == null || !canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        if (resolved.asCollection() != ResolvableType.NONE) {
+            return SensorReading.class.equals(resolved.asCollection().resolveGeneric(0));
+        }
+        if (resolved.asMap() != ResolvableType.NONE) {
+            return SensorReading.class.equals(resolved.asMap().resolveGeneric(1));
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        List<SensorReading> readings = new ArrayList<>(body instanceof Map<?, ?> map
+                ? (Collection<SensorReading>) map.values()
+                : (Collection<SensorReading>) body);
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeNumberField("count", readings.size());
+            writeStrings(generator, "sensorId", readings, SensorReading::getSensorId);
+            writeStrings(generator, "sensorType", readings, SensorReading::getSensorType);
+            writeStrings(generator, "location", readings, SensorReading::getLocation);
+
+            generator.writeArrayFieldStart("temperature");
+            for (SensorReading reading : readings) {
+                generator.writeNumber(reading.getTemperature());
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("pressure");
+            for (SensorReading reading : readings) {
+                generator.writeNumber(reading.getPressure());
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("timestamp");
+            for (SensorReading reading : readings) {
+                LocalDateTime timestamp = reading.getTimestamp();
+                if (timestamp != null) {
+                    generator.writeNumber(timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                } else {
+                    generator.writeNull();
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Columnar readings are write-only", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        return readInternal(null, inputMessage);
+    }
+
+    private static void writeStrings(JsonGenerator generator, String field, List<SensorReading> readings,
+                                     Function<SensorReading, String> getter) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (SensorReading reading : readings) {
+            generator.writeString(getter.apply(reading));
+        }
+        generator.writeEndArray();
+    }
+}
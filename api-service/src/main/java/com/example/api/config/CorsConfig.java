@@ -20,6 +20,7 @@ public class CorsConfig implements WebMvcConfigurer {
                                "http://144.24.97.79:3000", "http://144.24.97.79:8080")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders("X-Next-Cursor", "ETag")
                 .allowCredentials(true);
     }
 
@@ -30,6 +31,7 @@ public class CorsConfig implements WebMvcConfigurer {
                                                      "http://144.24.97.79:3000", "http://144.24.97.79:8080"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("X-Next-Cursor", "ETag"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
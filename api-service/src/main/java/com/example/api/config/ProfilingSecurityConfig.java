@@ -0,0 +1,30 @@
+package com.example.api.config;
+
+import com.example.api.profiling.JfrRecordingEndpoint;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * HTTP Basic for /actuator/jfr only, role PROFILER (the user of
+ * spring.security.user.*). Requests outside the matcher, the sensor API
+ * included, do not reach a filter chain and stay unauthenticated.
+ */
+@Configuration
+public class ProfilingSecurityConfig {
+
+    @Bean
+    public SecurityFilterChain profilingSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(EndpointRequest.to(JfrRecordingEndpoint.class))
+                .authorizeHttpRequests(requests -> requests.anyRequest().hasRole("PROFILER"))
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+}
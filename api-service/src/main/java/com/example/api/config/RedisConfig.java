@@ -1,36 +1,159 @@
 package com.example.api.config;
 
+import com.example.api.sharding.RedisShard;
+import com.example.api.sharding.RedisShards;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.lettuce.core.resource.ClientResources;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RedisConfig {
 
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+        return jsonRedisTemplate(connectionFactory);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       @Qualifier("sensorUpdateExecutor") ThreadPoolTaskExecutor sensorUpdateExecutor) {
+        return updateListenerContainer(connectionFactory, sensorUpdateExecutor);
+    }
+
+    // Bounded so a stalled listener cannot pile up updates until the heap runs out; SensorUpdateSubscriber
+    // handles updates the full queue turns away
+    @Bean
+    public ThreadPoolTaskExecutor sensorUpdateExecutor(@Value("${sensor.redis.update-queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("sensor-updates-");
+        return executor;
+    }
+
+    // The node of spring.data.redis, or one shard per sensor.redis.shards entry (host:port)
+    @Bean
+    public RedisShards redisShards(@Value("${sensor.redis.shards}") String shardAddresses,
+                                   @Value("${sensor.redis.virtual-nodes}") int virtualNodes,
+                                   RedisConnectionFactory connectionFactory,
+                                   StringRedisTemplate stringRedisTemplate,
+                                   ReactiveStringRedisTemplate reactiveRedisTemplate,
+                                   RedisTemplate<String, Object> redisTemplate,
+                                   RedisMessageListenerContainer redisMessageListenerContainer,
+                                   @Qualifier("sensorUpdateExecutor") ThreadPoolTaskExecutor sensorUpdateExecutor,
+                                   RedisProperties redisProperties,
+                                   ClientResources clientResources) {
+        List<String> addresses = List.of(StringUtils.commaDelimitedListToStringArray(
+                StringUtils.trimAllWhitespace(shardAddresses)));
+        if (addresses.isEmpty()) {
+            RedisShard shard = new RedisShard(redisProperties.getHost() + ":" + redisProperties.getPort(),
+                    stringRedisTemplate, reactiveRedisTemplate, redisTemplate, redisMessageListenerContainer);
+            return new RedisShards(List.of(shard), virtualNodes, List.of());
+        }
+
+        List<RedisShard> shards = new ArrayList<>();
+        List<DisposableBean> resources = new ArrayList<>();
+        for (String address : addresses) {
+            LettuceConnectionFactory shardConnectionFactory = shardConnectionFactory(address, redisProperties, clientResources);
+            RedisMessageListenerContainer container = updateListenerContainer(shardConnectionFactory, sensorUpdateExecutor);
+            container.afterPropertiesSet();
+            // Containers first so they unsubscribe before their connection closes
+            resources.add(0, container);
+            resources.add(shardConnectionFactory);
+            shards.add(new RedisShard(address,
+                    new StringRedisTemplate(shardConnectionFactory),
+                    new ReactiveStringRedisTemplate(shardConnectionFactory),
+                    jsonRedisTemplate(shardConnectionFactory),
+                    container));
+        }
+        return new RedisShards(shards, virtualNodes, resources);
+    }
+
+    private static RedisTemplate<String, Object> jsonRedisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
         // Configure ObjectMapper for JSON serialization
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
-        
+
         // Use String serializer for keys
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
-        
+
         // Use JSON serializer for values
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
         template.setValueSerializer(jsonSerializer);
         template.setHashValueSerializer(jsonSerializer);
-        
+
         template.afterPropertiesSet();
         return template;
     }
+
+    private static RedisMessageListenerContainer updateListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         ThreadPoolTaskExecutor sensorUpdateExecutor) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            // Started by SensorUpdateSubscriber, which retries while Redis is unavailable
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        // Deliver updates on one thread so listeners see them in publish order; with several
+        // shards, updates from all of them are delivered on that same thread
+        container.setTaskExecutor(sensorUpdateExecutor);
+        return container;
+    }
+
+    // Same credentials, timeouts and Lettuce event loops as the spring.data.redis connection
+    private static LettuceConnectionFactory shardConnectionFactory(String address, RedisProperties redisProperties,
+                                                                   ClientResources clientResources) {
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Redis shard must be host:port but was: " + address);
+        }
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        configuration.setDatabase(redisProperties.getDatabase());
+        configuration.setUsername(redisProperties.getUsername());
+        if (redisProperties.getPassword() != null) {
+            configuration.setPassword(redisProperties.getPassword());
+        }
+
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder()
+                .clientResources(clientResources);
+        if (redisProperties.getTimeout() != null) {
+            client.commandTimeout(redisProperties.getTimeout());
+        }
+        if (redisProperties.getLettuce().getShutdownTimeout() != null) {
+            client.shutdownTimeout(redisProperties.getLettuce().getShutdownTimeout());
+        }
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration, client.build());
+        connectionFactory.afterPropertiesSet();
+        return connectionFactory;
+    }
 }
@@ -0,0 +1,44 @@
+package com.example.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Response formats beyond JSON. CBOR (application/cbor) and Smile
+ * (application/x-jackson-smile) are registered by Spring MVC because the
+ * Jackson data formats are on the classpath. The columnar layout for bulk
+ * readings goes ahead of the JSON converter, which would otherwise claim its
+ * +json media type and write plain JSON.
+ *
+ * Bulk exports stream on their own small pool with no queue, so at most
+ * max-concurrent exports run at once and further ones are rejected.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        int json = 0;
+        while (json < converters.size() && !(converters.get(json) instanceof MappingJackson2HttpMessageConverter)) {
+            json++;
+        }
+        converters.add(json, new ColumnarReadingsHttpMessageConverter());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor sensorExportExecutor(@Value("${sensor.export.max-concurrent}") int maxConcurrent) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("sensor-export-");
+        return executor;
+    }
+}
@@ -1,41 +1,118 @@
 package com.example.api.controller;
 
+import com.example.api.analytics.AnalyticsGroupBy;
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.model.SensorChanges;
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorMetric;
 import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import com.example.api.service.ColumnarAnalyticsStore;
+import com.example.api.service.ExportFormat;
+import com.example.api.service.ReadingArchiveService;
+import com.example.api.service.SensorExportService;
 import com.example.api.service.SensorService;
+import com.example.api.service.SensorStreamService;
+import com.example.api.stats.StatisticsDimension;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.NotBlank;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Read endpoints answer conditional GETs: responses carry an ETag built from
+ * the data version the consumer maintains, and a request whose
+ * If-None-Match still matches gets 304 before any reading is loaded. No ETag
+ * is sent while the version is unknown (e.g. not subscribed to updates).
+ * The ETag is weak because the same version is served in every negotiated
+ * format and content encoding.
+ */
 @RestController
 @RequestMapping("/api/sensors")
 @Tag(name = "Sensor API", description = "API for sensor data")
 @Slf4j
 public class SensorController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_TIME_BUCKETS = 10000;
+
     @Autowired
     private SensorService sensorService;
 
+    @Autowired
+    private SensorStreamService sensorStreamService;
+
+    @Autowired
+    private SensorExportService sensorExportService;
+
+    @Autowired
+    private ColumnarAnalyticsStore columnarAnalyticsStore;
+
+    @Autowired
+    private ReadingArchiveService readingArchiveService;
+
+    @Autowired
+    @Qualifier("sensorExportExecutor")
+    private ThreadPoolTaskExecutor sensorExportExecutor;
+
+    @Value("${sensor.export.timeout}")
+    private Duration exportTimeout;
+
     @GetMapping("/latest")
     @Operation(summary = "Get sensor data", description = "Get latest data for a sensor")
     public ResponseEntity<?> getLatestSensorReading(
-            @Parameter(description = "Sensor ID") @RequestParam @NotBlank String sensorId) {
+            @Parameter(description = "Sensor ID") @RequestParam @NotBlank String sensorId,
+            WebRequest webRequest) {
         
         log.info("Getting data for sensor: {}", sensorId);
         
-        Optional<SensorReading> reading = sensorService.getLatestSensorReading(sensorId);
+        // A near-cache hit carries the version; only a miss asks Redis for it before the reading
+        Optional<SensorUpdate> cached = sensorService.getCachedSensorUpdate(sensorId);
+        OptionalLong version = cached.isPresent()
+                ? OptionalLong.of(cached.get().getVersion())
+                : sensorService.getSensorVersion(sensorId);
+        String etag = version.isPresent() ? etag(String.valueOf(version.getAsLong())) : null;
+        if (isNotModified(webRequest, etag)) {
+            return notModified(etag);
+        }
+        
+        Optional<SensorReading> reading = cached.isPresent()
+                ? Optional.of(cached.get().getReading())
+                : sensorService.loadLatestSensorReading(sensorId, version.orElse(0));
         
         if (reading.isPresent()) {
-            return ResponseEntity.ok(reading.get());
+            return ok(etag).body(reading.get());
         } else {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Sensor not found");
@@ -45,55 +122,246 @@ public class SensorController {
     }
 
     @GetMapping("/all")
-    @Operation(summary = "Get all sensors", description = "Get data for all sensors")
-    public ResponseEntity<List<SensorReading>> getAllLatestSensorReadings() {
+    @Operation(summary = "Get all sensors",
+            description = "Get data for all sensors, one page at a time. The next page cursor is returned in the X-Next-Cursor header")
+    public CompletableFuture<ResponseEntity<List<SensorReading>>> getAllLatestSensorReadings(
+            @Parameter(description = "Sensor ID to resume after") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Only sensors at this location") @RequestParam(required = false) String location,
+            @Parameter(description = "Only sensors of this type") @RequestParam(required = false) String type,
+            WebRequest webRequest) {
+        
+        String etag = dataEtag();
+        if (isNotModified(webRequest, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
+        
+        SensorFilter filter = new SensorFilter(location, type);
+        return sensorService.getLatestSensorReadingPageAsync(cursor, limit, filter).thenApply(page -> {
+            ResponseEntity.BodyBuilder response = ok(etag);
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        });
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get changed sensors",
+            description = "Get sensors updated after the given data version, or a full snapshot when the client is too far behind")
+    public CompletableFuture<ResponseEntity<SensorChanges>> getChanges(
+            @Parameter(description = "Version returned by the previous call, omit for a full snapshot") @RequestParam(required = false) String since) {
         
-        List<SensorReading> readings = sensorService.getAllLatestSensorReadings();
-        return ResponseEntity.ok(readings);
+        return sensorService.getChangesSinceAsync(since).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/query")
+    @Operation(summary = "Query sensors by value",
+            description = "Get sensors whose latest temperature or pressure lies in a range, lowest value first")
+    public CompletableFuture<ResponseEntity<List<SensorReading>>> querySensorReadings(
+            @Parameter(description = "temperature or pressure") @RequestParam String metric,
+            @Parameter(description = "Lowest value, inclusive") @RequestParam(required = false) Double min,
+            @Parameter(description = "Highest value, inclusive") @RequestParam(required = false) Double max,
+            @Parameter(description = "Number of matches to skip") @RequestParam(required = false) Integer offset,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer limit) {
+        
+        SensorMetric sensorMetric;
+        try {
+            sensorMetric = SensorMetric.fromParameter(metric);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        
+        return sensorService.getSensorReadingsInRangeAsync(sensorMetric, min, max, offset, limit)
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/batch")
     @Operation(summary = "Get multiple sensors", description = "Get data for specific sensors")
-    public ResponseEntity<Map<String, SensorReading>> getSensorReadings(@RequestBody List<String> sensorIds) {
+    public CompletableFuture<ResponseEntity<Map<String, SensorReading>>> getSensorReadings(@RequestBody List<String> sensorIds) {
+        
+        return sensorService.getSensorReadingsAsync(sensorIds).thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream sensor updates",
+            description = "Server-Sent Events: a 'snapshot' event with current readings, then 'readings' events with only the sensors that changed")
+    public ResponseEntity<SseEmitter> streamSensorReadings(
+            @Parameter(description = "Sensor IDs to follow, all sensors when omitted") @RequestParam(required = false) List<String> sensorIds) {
         
-        Map<String, SensorReading> readings = sensorService.getSensorReadings(sensorIds);
-        return ResponseEntity.ok(readings);
+        Optional<SseEmitter> emitter = sensorStreamService.subscribe(sensorIds, () ->
+                sensorIds == null || sensorIds.isEmpty()
+                        ? sensorService.getAllLatestSensorReadings()
+                        : new ArrayList<>(sensorService.getSensorReadings(sensorIds).values()));
+        
+        if (emitter.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+        return ResponseEntity.ok(emitter.get());
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export all sensors",
+            description = "Stream the latest reading of every sensor as NDJSON or CSV, optionally filtered by location and type")
+    public WebAsyncTask<Void> exportSensorReadings(
+            @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Only sensors at this location") @RequestParam(required = false) String location,
+            @Parameter(description = "Only sensors of this type") @RequestParam(required = false) String type,
+            HttpServletResponse response) {
+        
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        
+        // Written on the export pool, which has its own (longer) timeout than other async requests
+        return new WebAsyncTask<>(exportTimeout.toMillis(), sensorExportExecutor, () -> {
+            response.setContentType(exportFormat.getMediaType().toString());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename("sensors." + exportFormat.getParameterName())
+                    .build()
+                    .toString());
+            sensorExportService.export(exportFormat, new SensorFilter(location, type), response.getOutputStream());
+            return null;
+        });
+    }
+
+    // The export pool is full
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, Object>> exportRejected(TaskRejectedException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Too many exports in progress");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(error);
     }
 
     @GetMapping("/statistics")
-    @Operation(summary = "Get stats", description = "Get sensor statistics")
-    public ResponseEntity<Map<String, Object>> getSensorStatistics() {
+    @Operation(summary = "Get stats",
+            description = "Get sensor statistics with percentiles, optionally grouped by location or sensorType")
+    public ResponseEntity<Map<String, Object>> getSensorStatistics(
+            @Parameter(description = "Group by location or sensorType") @RequestParam(required = false) String groupBy,
+            @Parameter(description = "Percentiles to report, e.g. 50,95,99") @RequestParam(required = false) List<Double> percentiles,
+            @Parameter(description = "Only sensors at this location") @RequestParam(required = false) String location,
+            @Parameter(description = "Only sensors of this type") @RequestParam(required = false) String type,
+            WebRequest webRequest) {
         
-        Map<String, Object> stats = sensorService.getSensorStatistics();
-        return ResponseEntity.ok(stats);
+        StatisticsDimension dimension = null;
+        if (groupBy != null && !groupBy.isEmpty()) {
+            try {
+                dimension = StatisticsDimension.fromParameter(groupBy);
+            } catch (IllegalArgumentException e) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("error", e.getMessage());
+                error.put("groupBy", groupBy);
+                return ResponseEntity.badRequest().body(error);
+            }
+        }
+
+        double[] requested = SensorService.DEFAULT_PERCENTILES;
+        if (percentiles != null && !percentiles.isEmpty()) {
+            requested = percentiles.stream()
+                    .mapToDouble(p -> Math.max(0.0, Math.min(100.0, p)))
+                    .toArray();
+        }
+        
+        String etag = sensorService.getStatisticsVersion().map(SensorController::etag).orElse(null);
+        if (isNotModified(webRequest, etag)) {
+            return notModified(etag);
+        }
+        
+        Map<String, Object> stats = sensorService.getSensorStatistics(dimension, requested, new SensorFilter(location, type));
+        return ok(etag).body(stats);
+    }
+
+    @GetMapping("/analytics")
+    @Operation(summary = "Analyse recent readings",
+            description = "Aggregate the readings received in a recent window (count, avg, min, max), optionally filtered and grouped by location, sensorType or time bucket")
+    public ResponseEntity<Map<String, Object>> getAnalytics(
+            @Parameter(description = "How far back to look, e.g. 15m") @RequestParam(defaultValue = "15m") String window,
+            @Parameter(description = "Group by location, sensorType or time") @RequestParam(required = false) String groupBy,
+            @Parameter(description = "Time bucket width when grouping by time, e.g. 1m") @RequestParam(defaultValue = "1m") String interval,
+            @Parameter(description = "Only readings from this location") @RequestParam(required = false) String location,
+            @Parameter(description = "Only readings of this sensor type") @RequestParam(required = false) String type,
+            @Parameter(description = "temperature or pressure, to filter on a value range") @RequestParam(required = false) String metric,
+            @Parameter(description = "Lowest value, inclusive") @RequestParam(required = false) Double min,
+            @Parameter(description = "Highest value, inclusive") @RequestParam(required = false) Double max) {
+        
+        long now = System.currentTimeMillis();
+        long from;
+        try {
+            from = now - DurationStyle.detectAndParse(window).toMillis();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        AnalyticsQuery query = analyticsQuery(from, now + 1, groupBy, interval, location, type, metric, min, max);
+        return ResponseEntity.ok(columnarAnalyticsStore.query(query));
+    }
+
+    @GetMapping("/history")
+    @Operation(summary = "Analyse archived readings",
+            description = "Aggregate archived readings between two times (count, avg, min, max), optionally filtered and grouped by location, sensorType or time bucket")
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @Parameter(description = "Start time, inclusive, e.g. 2024-01-01T00:00:00") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End time, exclusive; now when omitted") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Group by location, sensorType or time") @RequestParam(required = false) String groupBy,
+            @Parameter(description = "Time bucket width when grouping by time, e.g. 1h") @RequestParam(defaultValue = "1h") String interval,
+            @Parameter(description = "Only readings from this location") @RequestParam(required = false) String location,
+            @Parameter(description = "Only readings of this sensor type") @RequestParam(required = false) String type,
+            @Parameter(description = "temperature or pressure, to filter on a value range") @RequestParam(required = false) String metric,
+            @Parameter(description = "Lowest value, inclusive") @RequestParam(required = false) Double min,
+            @Parameter(description = "Highest value, inclusive") @RequestParam(required = false) Double max) {
+        
+        long fromMillis = from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long toMillis = to == null ? System.currentTimeMillis() : to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (toMillis <= fromMillis) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must be after from");
+        }
+        AnalyticsQuery query = analyticsQuery(fromMillis, toMillis, groupBy, interval, location, type, metric, min, max);
+        return ResponseEntity.ok(readingArchiveService.query(query));
     }
 
     @GetMapping("/list")
     @Operation(summary = "Get sensor list", description = "Get all sensor IDs")
-    public ResponseEntity<Map<String, Object>> getAllSensorIds() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getAllSensorIds(
+            @Parameter(description = "Sensor ID to resume after") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
         
-        List<String> sensorIds = sensorService.getAllSensorIds();
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("sensorIds", sensorIds);
-        response.put("count", sensorIds.size());
-        response.put("timestamp", System.currentTimeMillis());
+        String etag = dataEtag();
+        if (isNotModified(webRequest, etag)) {
+            return CompletableFuture.completedFuture(notModified(etag));
+        }
         
-        return ResponseEntity.ok(response);
+        return sensorService.getSensorIdPageAsync(cursor, limit).thenApply(page -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("sensorIds", page.getItems());
+            response.put("count", page.getItems().size());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("timestamp", System.currentTimeMillis());
+            
+            return ok(etag).body(response);
+        });
     }
 
     @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> health() {
-        
-        Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
-        health.put("service", "api-service");
-        health.put("timestamp", System.currentTimeMillis());
-        
-        List<String> sensorIds = sensorService.getAllSensorIds();
-        health.put("activeSensors", sensorIds.size());
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> health() {
         
-        return ResponseEntity.ok(health);
+        return sensorService.countSensorsAsync()
+                .exceptionally(e -> 0L)
+                .thenApply(activeSensors -> {
+                    Map<String, Object> health = new HashMap<>();
+                    health.put("status", "UP");
+                    health.put("service", "api-service");
+                    health.put("timestamp", System.currentTimeMillis());
+                    health.put("activeSensors", activeSensors);
+                    
+                    return ResponseEntity.ok(health);
+                });
     }
 
     @GetMapping("/exists/{sensorId}")
@@ -108,4 +376,59 @@ public class SensorController {
         
         return ResponseEntity.ok(response);
     }
+
+    private static AnalyticsQuery analyticsQuery(long from, long to, String groupBy, String interval, String location,
+                                                 String type, String metric, Double min, Double max) {
+        AnalyticsQuery query = new AnalyticsQuery();
+        query.setFromMillis(from);
+        query.setToMillis(to);
+        try {
+            query.setIntervalMillis(DurationStyle.detectAndParse(interval).toMillis());
+            if (groupBy != null && !groupBy.isEmpty()) {
+                query.setGroupBy(AnalyticsGroupBy.fromParameter(groupBy));
+            }
+            if (metric != null && !metric.isEmpty()) {
+                query.setMetric(SensorMetric.fromParameter(metric));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (query.getIntervalMillis() <= 0
+                || (query.getGroupBy() == AnalyticsGroupBy.TIME && (to - from) / query.getIntervalMillis() > MAX_TIME_BUCKETS)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "interval must be positive and split the range into at most " + MAX_TIME_BUCKETS + " buckets");
+        }
+        query.setLocation(location == null || location.isEmpty() ? null : location);
+        query.setSensorType(type == null || type.isEmpty() ? null : type);
+        query.setMin(min);
+        query.setMax(max);
+        return query;
+    }
+
+    private String dataEtag() {
+        OptionalLong version = sensorService.getDataVersion();
+        return version.isPresent() ? etag(String.valueOf(version.getAsLong())) : null;
+    }
+
+    private static String etag(String version) {
+        return "W/\"" + version + "\"";
+    }
+
+    // Sets 304 on the response when the client's If-None-Match matches the current version
+    private static boolean isNotModified(WebRequest webRequest, String etag) {
+        return etag != null && webRequest.checkNotModified(etag);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    // Clients may keep the response but must revalidate it before reuse
+    private static ResponseEntity.BodyBuilder ok(String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT);
+        }
+        return response;
+    }
 }
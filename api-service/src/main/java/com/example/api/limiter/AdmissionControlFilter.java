@@ -0,0 +1,148 @@
+package com.example.api.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds sensor API requests with 503 and Retry-After once the adaptive
+ * concurrency limit is reached, before queued requests run into Redis
+ * timeouts.
+ *
+ * Single-sensor lookups and the health check are cheap and may use the whole
+ * limit; bulk endpoints only part of it. The stream and export endpoints are
+ * long-lived and have their own caps, so they are not counted. Asynchronous
+ * requests hold their slot until the async response completes.
+ */
+@Component
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/sensors/";
+    private static final Set<String> CHEAP_ENDPOINTS = Set.of("latest", "exists", "health");
+    private static final Set<String> UNLIMITED_ENDPOINTS = Set.of("stream", "export");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensor.limiter.enabled}")
+    private boolean enabled;
+
+    @Value("${sensor.limiter.initial-limit}")
+    private int initialLimit;
+
+    @Value("${sensor.limiter.min-limit}")
+    private int minLimit;
+
+    @Value("${sensor.limiter.max-limit}")
+    private int maxLimit;
+
+    @Value("${sensor.limiter.bulk-share}")
+    private double bulkShare;
+
+    @Value("${sensor.limiter.retry-after}")
+    private int retryAfterSeconds;
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private Counter bulkRejected;
+    private Counter cheapRejected;
+
+    @PostConstruct
+    public void init() {
+        limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, bulkShare);
+
+        Gauge.builder("sensor.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit").register(meterRegistry);
+        Gauge.builder("sensor.limiter.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Sensor API requests in progress").register(meterRegistry);
+        bulkRejected = Counter.builder("sensor.limiter.rejected").tag("priority", "bulk")
+                .description("Requests shed by the concurrency limiter").register(meterRegistry);
+        cheapRejected = Counter.builder("sensor.limiter.rejected").tag("priority", "cheap")
+                .description("Requests shed by the concurrency limiter").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!enabled || !path.startsWith(API_PREFIX) || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        return UNLIMITED_ENDPOINTS.contains(endpoint(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean bulk = !CHEAP_ENDPOINTS.contains(endpoint(request.getRequestURI().substring(request.getContextPath().length())));
+        if (!limiter.tryAcquire(bulk)) {
+            (bulk ? bulkRejected : cheapRejected).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private static String endpoint(String path) {
+        String rest = path.substring(API_PREFIX.length());
+        int slash = rest.indexOf('/');
+        return slash < 0 ? rest : rest.substring(0, slash);
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorChanges {
+    // Data versions these readings are current as of, one per Redis shard joined by dots (a plain
+    // number with a single node); pass it as "since" on the next request
+    private String version;
+    // True when readings is the full set of sensors and replaces what the client has
+    private boolean snapshot;
+    private List<SensorReading> readings;
+}
@@ -0,0 +1,27 @@
+package com.example.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorFilter {
+    // Null or empty matches any value
+    private String location;
+    private String sensorType;
+
+    public boolean isEmpty() {
+        return isBlank(location) && isBlank(sensorType);
+    }
+
+    public boolean matches(SensorReading reading) {
+        return (isBlank(location) || location.equals(reading.getLocation()))
+                && (isBlank(sensorType) || sensorType.equals(reading.getSensorType()));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.api.model;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Numeric reading values sensors can be queried by.
+ */
+public enum SensorMetric {
+    TEMPERATURE("temperature", SensorReading::getTemperature),
+    PRESSURE("pressure", SensorReading::getPressure);
+
+    private final String parameterName;
+    private final ToDoubleFunction<SensorReading> extractor;
+
+    SensorMetric(String parameterName, ToDoubleFunction<SensorReading> extractor) {
+        this.parameterName = parameterName;
+        this.extractor = extractor;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    public double valueOf(SensorReading reading) {
+        return extractor.applyAsDouble(reading);
+    }
+
+    // Accepts the request parameter name, e.g. "temperature" or "pressure"
+    public static SensorMetric fromParameter(String name) {
+        for (SensorMetric metric : values()) {
+            if (metric.parameterName.equalsIgnoreCase(name)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + name);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorPage<T> {
+    private List<T> items;
+    // Sensor ID to pass as cursor for the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.example.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorUpdate {
+    // Null when the update only announces a new data version (e.g. expired sensors were pruned)
+    private SensorReading reading;
+    // Data version after this update, 0 when published by a consumer that does not track versions
+    private long version;
+}
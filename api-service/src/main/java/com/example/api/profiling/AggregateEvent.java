@@ -0,0 +1,29 @@
+package com.example.api.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.api.Aggregate")
+@Label("Aggregate")
+@Category({"Sensor Pipeline", "API"})
+@Description("Computing statistics or analytics over the in-memory read models")
+@StackTrace(false)
+@Setter
+public class AggregateEvent extends Event {
+
+    // statistics, statistics-filtered or analytics
+    @Label("Source")
+    private String source;
+
+    @Label("Group By")
+    private String groupBy;
+
+    // Readings aggregated; not known for the incrementally maintained statistics
+    @Label("Readings")
+    private long readings;
+}
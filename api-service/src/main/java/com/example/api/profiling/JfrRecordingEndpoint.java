@@ -0,0 +1,120 @@
+package com.example.api.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Starts, stops and hands out a Java Flight Recorder recording through
+ * /actuator/jfr, for slow or stalled queries that the request timers only
+ * show in aggregate. The recording uses the sensor.profiling.settings event
+ * configuration and adds the Redis fetch and aggregation events of this
+ * service, so a slow /statistics call can be lined up with its MGETs.
+ *
+ * POST takes an optional duration (at most max-duration, data kept up to
+ * max-size), DELETE stops the recording, GET returns the file after it has
+ * stopped and 404 before. Only the latest recording is kept on disk.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class JfrRecordingEndpoint implements DisposableBean {
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Value("${sensor.profiling.settings}")
+    private String settings;
+
+    @Value("${sensor.profiling.max-duration}")
+    private Duration maxDuration;
+
+    @Value("${sensor.profiling.max-size}")
+    private DataSize maxSize;
+
+    @Value("${sensor.profiling.dir}")
+    private Path dir;
+
+    private Recording recording;
+    private Path file;
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Duration duration) throws IOException, ParseException {
+        if (isRunning()) {
+            return status();
+        }
+        destroy();
+
+        Files.createDirectories(dir);
+        file = dir.resolve(applicationName + "-" + System.currentTimeMillis() + ".jfr");
+        recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName(applicationName);
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSize.toBytes());
+        recording.setDuration(duration == null || duration.compareTo(maxDuration) > 0 ? maxDuration : duration);
+        recording.setDestination(file);
+        recording.start();
+        log.info("Started JFR recording for {} to {}", recording.getDuration(), file);
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (isRunning()) {
+            recording.stop();
+            log.info("Stopped JFR recording, written to {}", file);
+        }
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download() {
+        if (recording == null || isRunning() || !Files.exists(file)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(file));
+    }
+
+    // Closes the recording and deletes its file
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (recording != null) {
+            recording.close();
+            Files.deleteIfExists(file);
+            recording = null;
+        }
+    }
+
+    private boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private Map<String, Object> status() {
+        if (recording == null) {
+            return Map.of("state", "NONE");
+        }
+        return Map.of("state", recording.getState().name(),
+                "duration", recording.getDuration().toString(),
+                "file", file.getFileName().toString());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.api.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.api.RedisFetch")
+@Label("Redis Fetch")
+@Category({"Sensor Pipeline", "API"})
+@Description("Fetching and decoding latest readings from one Redis shard; batched fetches end on the fetch pool")
+@StackTrace(false)
+@Setter
+public class RedisFetchEvent extends Event {
+
+    @Label("Shard")
+    private String shard;
+
+    @Label("Requested Sensors")
+    private int requested;
+
+    @Label("Found Sensors")
+    private int found;
+}
@@ -0,0 +1,61 @@
+package com.example.api.repository;
+
+import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Decodes raw reading values as stored by the consumer.
+ *
+ * The consumer writes the reading JSON as a string through a Jackson value
+ * serializer, so the stored bytes are usually a quoted JSON string wrapping
+ * the reading. Plain JSON objects are accepted too.
+ *
+ * Messages on the update channel are the reading JSON with the data version
+ * added as a "version" field.
+ */
+@Component
+public class SensorReadingCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public SensorReadingCodec() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public SensorReading decode(byte[] raw) throws IOException {
+        if (isQuotedString(raw)) {
+            String json = objectMapper.readValue(raw, String.class);
+            return objectMapper.readValue(json, SensorReading.class);
+        }
+        return objectMapper.readValue(raw, SensorReading.class);
+    }
+
+    public SensorUpdate decodeUpdate(byte[] raw) throws IOException {
+        JsonNode node = objectMapper.readTree(raw);
+        if (node.isTextual()) {
+            node = objectMapper.readTree(node.asText());
+        }
+        SensorReading reading = node.hasNonNull("sensorId")
+                ? objectMapper.treeToValue(node, SensorReading.class)
+                : null;
+        return new SensorUpdate(reading, node.path("version").asLong(0));
+    }
+
+    private static boolean isQuotedString(byte[] raw) {
+        for (byte b : raw) {
+            if (!Character.isWhitespace(b)) {
+                return b == '"';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.api.repository;
+
+import com.example.api.model.SensorMetric;
+import com.example.api.model.SensorReading;
+import com.example.api.profiling.RedisFetchEvent;
+import com.example.api.sharding.RedisShard;
+import com.example.api.sharding.RedisShards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Sensor-id lookups backed by the index the consumer maintains.
+ *
+ * The index is a sorted set where every sensor has score 0, so ZRANGEBYLEX
+ * returns ids in sorted order and a page can resume after any id. When the
+ * index is missing (e.g. data written by an older consumer) we fall back to an
+ * incremental SCAN over the reading keys instead of KEYS.
+ *
+ * Readings are fetched in bulk with MGET, split into chunks of at most
+ * fetch-chunk-size keys so no single command holds Redis for long.
+ *
+ * All lookups go through Lettuce's non-blocking API and return futures, so no
+ * request thread waits on Redis: chunk MGETs are issued together and pipelined
+ * over the shared connection, and each chunk's raw bytes are decoded on the
+ * fetch pool rather than on the Redis I/O thread. The blocking variants just
+ * wait for the future.
+ *
+ * The per-sensor versions set doubles as a change log: the sensors written
+ * after a given data version are a ZRANGEBYSCORE away. Each shard numbers its
+ * own writes, so data versions come as one number per shard, in shard order.
+ * The same goes for
+ * sensors whose latest temperature or pressure lies in a range, through the
+ * value indexes the consumer keeps per metric.
+ *
+ * With sensors sharded over several Redis nodes ({@link RedisShards}), the
+ * lookups for given sensors go to their shards and every lookup across sensors
+ * is sent to all shards at once and merged. A shard's part of a sorted page is
+ * its own first page, so the first page of the merge is exact. Right after a
+ * shard is added, sensors it took over can still be indexed on their old shard
+ * until that entry expires; merged ids are de-duplicated and readings always
+ * come from the current shard, only the sensor count may include them.
+ */
+@Repository
+@Slf4j
+public class SensorRedisRepository {
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Value("${sensor.redis.key-prefix}")
+    private String redisKeyPrefix;
+
+    @Value("${sensor.redis.index-key}")
+    private String indexKey;
+
+    @Value("${sensor.redis.versions-key}")
+    private String versionsKey;
+
+    @Value("${sensor.redis.version-key}")
+    private String versionKey;
+
+    @Value("${sensor.redis.pruned-version-key}")
+    private String prunedVersionKey;
+
+    @Value("${sensor.redis.temperature-index-key}")
+    private String temperatureIndexKey;
+
+    @Value("${sensor.redis.pressure-index-key}")
+    private String pressureIndexKey;
+
+    @Value("${sensor.redis.scan-count}")
+    private int scanCount;
+
+    @Value("${sensor.redis.fetch-chunk-size}")
+    private int fetchChunkSize;
+
+    @Value("${sensor.redis.fetch-parallelism}")
+    private int fetchParallelism;
+
+    @Autowired
+    private SensorReadingCodec sensorReadingCodec;
+
+    private ExecutorService fetchExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        fetchExecutor = Executors.newFixedThreadPool(fetchParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-fetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    // Number of indexed sensors
+    public long countSensors() {
+        return countSensorsAsync().join();
+    }
+
+    public CompletableFuture<Long> countSensorsAsync() {
+        return fanOut(shard -> shard.getReactiveRedisTemplate().opsForZSet().size(indexKey).toFuture()
+                .thenCompose(count -> count != null && count > 0
+                        ? CompletableFuture.completedFuture(count)
+                        : scanSensorIdsAsync(shard).thenApply(ids -> (long) ids.size())))
+                .thenApply(counts -> counts.stream().mapToLong(Long::longValue).sum());
+    }
+
+    // All sensor IDs in sorted order
+    public List<String> findAllSensorIds() {
+        return findAllSensorIdsAsync().join();
+    }
+
+    public CompletableFuture<List<String>> findAllSensorIdsAsync() {
+        return fanOut(shard -> shard.getReactiveRedisTemplate().opsForZSet().range(indexKey, Range.closed(0L, -1L))
+                .collectList()
+                .toFuture()
+                .thenCompose(ids -> !ids.isEmpty()
+                        ? CompletableFuture.completedFuture(ids)
+                        : scanSensorIdsAsync(shard)))
+                .thenApply(ids -> mergeSorted(ids, Integer.MAX_VALUE));
+    }
+
+    // Up to limit sensor IDs that sort after the cursor (null cursor = first page)
+    public List<String> findSensorIdPage(String cursor, int limit) {
+        return findSensorIdPageAsync(cursor, limit).join();
+    }
+
+    public CompletableFuture<List<String>> findSensorIdPageAsync(String cursor, int limit) {
+        return fanOut(shard -> findSensorIdPageAsync(shard, cursor, limit))
+                .thenApply(pages -> mergeSorted(pages, limit));
+    }
+
+    private CompletableFuture<List<String>> findSensorIdPageAsync(RedisShard shard, String cursor, int limit) {
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        Range<String> range = firstPage
+                ? Range.unbounded()
+                : Range.rightUnbounded(Range.Bound.exclusive(cursor));
+
+        return shard.getReactiveRedisTemplate().opsForZSet().rangeByLex(indexKey, range, Limit.limit().count(limit))
+                .collectList()
+                .toFuture()
+                .thenCompose(ids -> {
+                    if (!ids.isEmpty()) {
+                        return CompletableFuture.completedFuture(ids);
+                    }
+                    CompletableFuture<Boolean> indexed = firstPage
+                            ? CompletableFuture.completedFuture(false)
+                            : shard.getReactiveRedisTemplate().hasKey(indexKey).toFuture();
+                    return indexed.thenCompose(hasIndex -> Boolean.TRUE.equals(hasIndex)
+                            // Past the last page
+                            ? CompletableFuture.completedFuture(Collections.<String>emptyList())
+                            : scanSensorIdsAsync(shard).thenApply(all -> all.stream()
+                                    .filter(id -> firstPage || id.compareTo(cursor) > 0)
+                                    .limit(limit)
+                                    .toList()));
+                });
+    }
+
+    // Data version of the sensor's last write; empty for unknown sensors or data from a consumer without versions
+    public OptionalLong findSensorVersion(String sensorId) {
+        Double score = redisShards.forSensor(sensorId).getStringRedisTemplate().opsForZSet().score(versionsKey, sensorId);
+        return score != null ? OptionalLong.of(score.longValue()) : OptionalLong.empty();
+    }
+
+    // Current data version of each shard, 0 for shards written by a consumer that does not track versions
+    public CompletableFuture<List<Long>> findDataVersionsAsync() {
+        return fanOut(shard -> findCounterAsync(shard, versionKey));
+    }
+
+    // Data version of each shard's last prune, 0 if its sensors were never pruned
+    public CompletableFuture<List<Long>> findPrunedVersionsAsync() {
+        return fanOut(shard -> findCounterAsync(shard, prunedVersionKey));
+    }
+
+    // Up to limit sensor IDs last written after the shard's version in since and at or before its
+    // version in until, shard by shard
+    public CompletableFuture<List<String>> findChangedSensorIdsAsync(List<Long> since, List<Long> until, int limit) {
+        List<RedisShard> shards = redisShards.all();
+        return fanOut(shard -> {
+            int index = shards.indexOf(shard);
+            if (since.get(index) >= until.get(index)) {
+                return CompletableFuture.completedFuture(Collections.<String>emptyList());
+            }
+            Range<Double> range = Range.of(Range.Bound.exclusive((double) since.get(index)),
+                    Range.Bound.inclusive((double) until.get(index)));
+            return shard.getReactiveRedisTemplate().opsForZSet()
+                    .rangeByScore(versionsKey, range, Limit.limit().count(limit))
+                    .collectList()
+                    .toFuture();
+        }).thenApply(changed -> changed.stream()
+                .flatMap(List::stream)
+                .limit(limit)
+                .toList());
+    }
+
+    // Up to limit sensor IDs whose latest value of the metric lies in [min, max] (null = unbounded),
+    // lowest value first
+    public CompletableFuture<List<String>> findSensorIdsInRangeAsync(SensorMetric metric, Double min, Double max,
+                                                                     int offset, int limit) {
+        Range<Double> range = Range.of(
+                min != null ? Range.Bound.inclusive(min) : Range.Bound.unbounded(),
+                max != null ? Range.Bound.inclusive(max) : Range.Bound.unbounded());
+        String key = metric == SensorMetric.TEMPERATURE ? temperatureIndexKey : pressureIndexKey;
+        if (!redisShards.isSharded()) {
+            return redisShards.all().get(0).getReactiveRedisTemplate().opsForZSet()
+                    .rangeByScore(key, range, Limit.limit().offset(offset).count(limit))
+                    .collectList()
+                    .toFuture();
+        }
+        // The page can start on any shard, so each contributes everything up to its end
+        return fanOut(shard -> shard.getReactiveRedisTemplate().opsForZSet()
+                .rangeByScoreWithScores(key, range, Limit.limit().count(offset + limit))
+                .collectList()
+                .toFuture())
+                .thenApply(entries -> mergeByScore(entries, offset, limit));
+    }
+
+    private CompletableFuture<Long> findCounterAsync(RedisShard shard, String key) {
+        return shard.getReactiveRedisTemplate().opsForValue().get(key)
+                .map(Long::parseLong)
+                .defaultIfEmpty(0L)
+                .toFuture();
+    }
+
+    // Fallback when the index is empty: SCAN the reading keys in small batches
+    public List<String> scanSensorIds() {
+        List<List<String>> ids = new ArrayList<>();
+        for (RedisShard shard : redisShards.all()) {
+            ids.add(scanSensorIds(shard));
+        }
+        return mergeSorted(ids, Integer.MAX_VALUE);
+    }
+
+    private List<String> scanSensorIds(RedisShard shard) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(redisKeyPrefix + "*")
+                .count(scanCount)
+                .build();
+
+        List<String> ids = new ArrayList<>();
+        try (Cursor<String> cursor = shard.getRedisTemplate().scan(options)) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().substring(redisKeyPrefix.length()));
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            log.debug("Sensor index empty on {}, found {} sensors with SCAN", shard, ids.size());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private CompletableFuture<List<String>> scanSensorIdsAsync(RedisShard shard) {
+        return CompletableFuture.supplyAsync(() -> scanSensorIds(shard), fetchExecutor);
+    }
+
+    // Latest readings for the given sensors, in request order; missing or expired sensors are left out
+    public Map<String, SensorReading> findReadings(Collection<String> sensorIds) {
+        return findReadingsAsync(sensorIds).join();
+    }
+
+    public CompletableFuture<Map<String, SensorReading>> findReadingsAsync(Collection<String> sensorIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(sensorIds));
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        List<CompletableFuture<Map<String, SensorReading>>> chunks = new ArrayList<>();
+        redisShards.groupBySensor(ids).forEach((shard, shardIds) -> {
+            for (int start = 0; start < shardIds.size(); start += fetchChunkSize) {
+                chunks.add(fetchChunk(shard, shardIds.subList(start, Math.min(start + fetchChunkSize, shardIds.size()))));
+            }
+        });
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    Map<String, SensorReading> found = new LinkedHashMap<>();
+                    chunks.forEach(chunk -> found.putAll(chunk.join()));
+                    if (chunks.size() == 1) {
+                        return found;
+                    }
+                    // Back into request order across shards
+                    Map<String, SensorReading> readings = new LinkedHashMap<>();
+                    for (String sensorId : ids) {
+                        SensorReading reading = found.get(sensorId);
+                        if (reading != null) {
+                            readings.put(sensorId, reading);
+                        }
+                    }
+                    return readings;
+                });
+    }
+
+    // One MGET for the chunk; the reply is decoded on the fetch pool
+    private CompletableFuture<Map<String, SensorReading>> fetchChunk(RedisShard shard, List<String> sensorIds) {
+        List<ByteBuffer> keys = new ArrayList<>(sensorIds.size());
+        for (String sensorId : sensorIds) {
+            keys.add(ByteBuffer.wrap((redisKeyPrefix + sensorId).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        RedisFetchEvent event = new RedisFetchEvent();
+        event.begin();
+        return shard.getReactiveRedisTemplate().execute(connection -> connection.stringCommands().mGet(keys))
+                .next()
+                .toFuture()
+                .thenApplyAsync(values -> {
+                    Map<String, SensorReading> readings = decodeChunk(sensorIds, values);
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.setShard(shard.getName());
+                        event.setRequested(sensorIds.size());
+                        event.setFound(readings.size());
+                        event.commit();
+                    }
+                    return readings;
+                }, fetchExecutor);
+    }
+
+    private Map<String, SensorReading> decodeChunk(List<String> sensorIds, List<ByteBuffer> values) {
+        Map<String, SensorReading> readings = new LinkedHashMap<>();
+        if (values == null) {
+            return readings;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            ByteBuffer value = values.get(i);
+            if (value == null || !value.hasRemaining()) {
+                continue;
+            }
+            byte[] raw = new byte[value.remaining()];
+            value.get(raw);
+            try {
+                readings.put(sensorIds.get(i), sensorReadingCodec.decode(raw));
+            } catch (Exception e) {
+                log.warn("Failed to read sensor data for {}: {}", sensorIds.get(i), e.getMessage());
+            }
+        }
+        return readings;
+    }
+
+    // Runs the query on every shard at once
+    private <T> CompletableFuture<List<T>> fanOut(Function<RedisShard, CompletableFuture<T>> query) {
+        List<CompletableFuture<T>> results = redisShards.all().stream().map(query).toList();
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    // The first limit distinct ids of the shards' sorted id lists, in sorted order
+    static List<String> mergeSorted(List<List<String>> sorted, int limit) {
+        if (sorted.size() == 1) {
+            List<String> ids = sorted.get(0);
+            return ids.size() > limit ? ids.subList(0, limit) : ids;
+        }
+        return sorted.stream()
+                .flatMap(List::stream)
+                .distinct()
+                .sorted()
+                .limit(limit)
+                .toList();
+    }
+
+    // The distinct ids at positions offset to offset + limit of the shards' entries ordered by score
+    static List<String> mergeByScore(List<List<ZSetOperations.TypedTuple<String>>> entries, int offset, int limit) {
+        return entries.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing((ZSetOperations.TypedTuple<String> entry) -> entry.getScore())
+                        .thenComparing(ZSetOperations.TypedTuple::getValue))
+                .map(ZSetOperations.TypedTuple::getValue)
+                .distinct()
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.api.repository;
+
+import com.example.api.model.SensorReading;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reads the latest reading of every sensor from the log-compacted
+ * latest-state topic the consumer publishes to.
+ *
+ * The topic is read from the beginning up to the end offsets found when the
+ * read starts, keeping the last record per sensor id. Partitions are assigned
+ * directly, so no consumer group or committed offsets are involved.
+ */
+@Repository
+public class SensorStateTopicReader {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    @Autowired
+    private ConsumerFactory<String, String> consumerFactory;
+
+    @Autowired
+    private SensorReadingCodec sensorReadingCodec;
+
+    @Value("${sensor.latest-state.topic}")
+    private String latestStateTopic;
+
+    // Sensor id -> latest reading; empty when the topic does not exist yet
+    public Map<String, SensorReading> readAll(Duration timeout) throws IOException {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "5000");
+
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer(null, "latest-state-reader", null, overrides)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(latestStateTopic, timeout);
+            Map<String, String> latest = new HashMap<>();
+            if (partitionInfos != null && !partitionInfos.isEmpty()) {
+                List<TopicPartition> partitions = partitionInfos.stream()
+                        .map(info -> new TopicPartition(latestStateTopic, info.partition()))
+                        .toList();
+                consumer.assign(partitions);
+                consumer.seekToBeginning(partitions);
+                Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions, timeout);
+
+                long deadline = System.nanoTime() + timeout.toNanos();
+                while (!caughtUp(consumer, endOffsets)) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IllegalStateException("Timed out reading " + latestStateTopic + " after " + timeout);
+                    }
+                    for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT)) {
+                        if (record.value() == null) {
+                            latest.remove(record.key());
+                        } else {
+                            latest.put(record.key(), record.value());
+                        }
+                    }
+                }
+            }
+
+            // Decode only the surviving record per sensor
+            Map<String, SensorReading> readings = new HashMap<>(latest.size() * 2);
+            for (Map.Entry<String, String> entry : latest.entrySet()) {
+                readings.put(entry.getKey(), sensorReadingCodec.decode(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+            return readings;
+        }
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            if (consumer.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
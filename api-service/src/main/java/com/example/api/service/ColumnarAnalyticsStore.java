@@ -0,0 +1,261 @@
+package com.example.api.service;
+
+import com.example.api.analytics.AnalyticsGroupBy;
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.analytics.GroupAggregate;
+import com.example.api.analytics.ReadingChunk;
+import com.example.api.analytics.ValueDictionary;
+import com.example.api.model.SensorReading;
+import com.example.api.profiling.AggregateEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recent reading history kept in memory as columns, for analytical queries
+ * that the latest-value store cannot answer.
+ *
+ * Every reading from the update channel is appended to the newest
+ * {@link ReadingChunk}; full chunks become immutable, and whole chunks are
+ * dropped once all their readings are older than the retention or the row
+ * budget is exceeded. Location and sensor type are dictionary-encoded. A query
+ * aggregates each chunk into partial groups on a fork-join pool and merges
+ * them, so it scales with cores rather than with history length. History
+ * starts when the instance subscribes; it is not loaded from Redis, which only
+ * holds the latest reading per sensor.
+ */
+@Service
+@Slf4j
+public class ColumnarAnalyticsStore implements SensorUpdateListener {
+
+    // Attribute code meaning "no filter" for ReadingChunk.aggregate
+    private static final int ANY = -2;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensor.analytics.retention}")
+    private Duration retention;
+
+    @Value("${sensor.analytics.chunk-size}")
+    private int chunkSize;
+
+    @Value("${sensor.analytics.max-rows}")
+    private long maxRows;
+
+    @Value("${sensor.analytics.parallelism}")
+    private int parallelism;
+
+    private final ValueDictionary locations = new ValueDictionary();
+    private final ValueDictionary sensorTypes = new ValueDictionary();
+    // Replaced, never modified, so queries can work on a snapshot without locking
+    private volatile ReadingChunk[] chunks = new ReadingChunk[0];
+    private ForkJoinPool queryPool;
+
+    @PostConstruct
+    public void init() {
+        queryPool = new ForkJoinPool(parallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("sensor-analytics-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+        Gauge.builder("sensor.analytics.rows", this, ColumnarAnalyticsStore::size)
+                .description("Readings held by the analytics store").register(meterRegistry);
+        Gauge.builder("sensor.analytics.chunks", this, store -> store.chunks.length)
+                .description("Column chunks held by the analytics store").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryPool.shutdownNow();
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        append(reading);
+    }
+
+    // Called on the single update thread only
+    void append(SensorReading reading) {
+        long timestamp = toMillis(reading.getTimestamp());
+        int location = locations.encode(reading.getLocation());
+        int sensorType = sensorTypes.encode(reading.getSensorType());
+
+        ReadingChunk[] current = chunks;
+        ReadingChunk active = current.length == 0 ? null : current[current.length - 1];
+        if (active == null || !active.append(timestamp, reading.getTemperature(), reading.getPressure(), location, sensorType)) {
+            active = new ReadingChunk(chunkSize);
+            active.append(timestamp, reading.getTemperature(), reading.getPressure(), location, sensorType);
+            chunks = withNewChunk(current, active);
+        }
+    }
+
+    public long size() {
+        long rows = 0;
+        for (ReadingChunk chunk : chunks) {
+            rows += chunk.size();
+        }
+        return rows;
+    }
+
+    /**
+     * Aggregates the readings matching the query. Groups are ordered by key:
+     * attribute value, or bucket start for time grouping.
+     */
+    public Map<String, Object> query(AnalyticsQuery query) {
+        AggregateEvent event = new AggregateEvent();
+        event.begin();
+        long start = System.nanoTime();
+        ReadingChunk[] snapshot = chunks;
+        int locationCode = query.getLocation() == null ? ANY : locations.lookup(query.getLocation());
+        int sensorTypeCode = query.getSensorType() == null ? ANY : sensorTypes.lookup(query.getSensorType());
+
+        ChunkResult merged = snapshot.length == 0
+                ? new ChunkResult(new HashMap<>(), 0)
+                : queryPool.invoke(new AggregateTask(snapshot, 0, snapshot.length, query, locationCode, sensorTypeCode));
+
+        List<Map<String, Object>> groups = new ArrayList<>();
+        merged.groups.entrySet().stream()
+                .sorted(groupOrder(query.getGroupBy()))
+                .forEach(entry -> {
+                    Map<String, Object> group = new LinkedHashMap<>();
+                    if (query.getGroupBy() != null) {
+                        group.put("key", groupKey(query.getGroupBy(), entry.getKey()));
+                    }
+                    group.putAll(entry.getValue().toMap());
+                    groups.add(group);
+                });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", toDateTime(query.getFromMillis()));
+        result.put("to", toDateTime(query.getToMillis()));
+        result.put("groupBy", query.getGroupBy() == null ? null : query.getGroupBy().getParameterName());
+        result.put("matched", merged.matched);
+        result.put("groups", groups);
+        result.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        event.end();
+        if (event.shouldCommit()) {
+            event.setSource("analytics");
+            event.setGroupBy(query.getGroupBy() == null ? null : query.getGroupBy().getParameterName());
+            event.setReadings(merged.matched);
+            event.commit();
+        }
+        return result;
+    }
+
+    // Appends the new chunk and drops expired ones and the oldest beyond the row budget
+    private ReadingChunk[] withNewChunk(ReadingChunk[] current, ReadingChunk added) {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        long budget = Math.max(maxRows - chunkSize, 0);
+        int keepFrom = current.length;
+        long rows = 0;
+        while (keepFrom > 0) {
+            ReadingChunk candidate = current[keepFrom - 1];
+            if (candidate.getMaxTimestamp() < cutoff || rows + candidate.size() > budget) {
+                break;
+            }
+            rows += candidate.size();
+            keepFrom--;
+        }
+        if (keepFrom > 0) {
+            log.debug("Dropping {} analytics chunks", keepFrom);
+        }
+        ReadingChunk[] next = Arrays.copyOf(Arrays.copyOfRange(current, keepFrom, current.length),
+                current.length - keepFrom + 1);
+        next[next.length - 1] = added;
+        return next;
+    }
+
+    private Comparator<Map.Entry<Long, GroupAggregate>> groupOrder(AnalyticsGroupBy groupBy) {
+        if (groupBy == AnalyticsGroupBy.LOCATION || groupBy == AnalyticsGroupBy.SENSOR_TYPE) {
+            return Comparator.comparing(entry -> (String) groupKey(groupBy, entry.getKey()));
+        }
+        return Map.Entry.comparingByKey();
+    }
+
+    private Object groupKey(AnalyticsGroupBy groupBy, long key) {
+        switch (groupBy) {
+            case LOCATION:
+                return locations.decode((int) key);
+            case SENSOR_TYPE:
+                return sensorTypes.decode((int) key);
+            default:
+                return toDateTime(key);
+        }
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp == null
+                ? System.currentTimeMillis()
+                : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private record ChunkResult(Map<Long, GroupAggregate> groups, long matched) {
+    }
+
+    // Splits the chunk range in halves until one chunk is left, then merges partial groups upwards
+    private static class AggregateTask extends RecursiveTask<ChunkResult> {
+
+        private final ReadingChunk[] chunks;
+        private final int from;
+        private final int to;
+        private final AnalyticsQuery query;
+        private final int locationCode;
+        private final int sensorTypeCode;
+
+        AggregateTask(ReadingChunk[] chunks, int from, int to, AnalyticsQuery query, int locationCode, int sensorTypeCode) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.locationCode = locationCode;
+            this.sensorTypeCode = sensorTypeCode;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from == 1) {
+                Map<Long, GroupAggregate> groups = new HashMap<>();
+                long matched = chunks[from].aggregate(query, locationCode, sensorTypeCode, groups);
+                return new ChunkResult(groups, matched);
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(chunks, from, middle, query, locationCode, sensorTypeCode);
+            left.fork();
+            ChunkResult right = new AggregateTask(chunks, middle, to, query, locationCode, sensorTypeCode).compute();
+            ChunkResult leftResult = left.join();
+
+            right.groups.forEach((key, group) -> leftResult.groups.merge(key, group, (a, b) -> {
+                a.merge(b);
+                return a;
+            }));
+            return new ChunkResult(leftResult.groups, leftResult.matched + right.matched);
+        }
+    }
+}
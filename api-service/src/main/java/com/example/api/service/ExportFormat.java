@@ -0,0 +1,37 @@
+package com.example.api.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats a bulk export can be written in.
+ */
+public enum ExportFormat {
+    NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson")),
+    CSV("csv", MediaType.parseMediaType("text/csv"));
+
+    private final String parameterName;
+    private final MediaType mediaType;
+
+    ExportFormat(String parameterName, MediaType mediaType) {
+        this.parameterName = parameterName;
+        this.mediaType = mediaType;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    // Accepts the request parameter name, e.g. "ndjson" or "csv"
+    public static ExportFormat fromParameter(String name) {
+        for (ExportFormat format : values()) {
+            if (format.parameterName.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.api.service;
+
+import com.example.api.startup.StartupWarmup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the in-memory read models before the instance reports itself ready.
+ *
+ * Spring Boot keeps the readiness state at REFUSING_TRAFFIC until application
+ * runners have finished, so subscribing to updates and loading the statistics
+ * engine and attribute index here keeps /actuator/health/readiness down until
+ * they can answer from memory. If that takes longer than the bootstrap
+ * timeout (e.g. Redis is unreachable) the instance becomes ready anyway and
+ * the read models catch up in the background as before. The request hot
+ * paths are then warmed up by {@link StartupWarmup}. The time from JVM start
+ * to ready is logged and exported as a gauge.
+ */
+@Component
+@Slf4j
+public class ReadModelBootstrap implements ApplicationRunner {
+
+    private static final long POLL_MILLIS = 50;
+    private static final long SUBSCRIBE_RETRY_MILLIS = 1000;
+
+    @Autowired
+    private SensorUpdateSubscriber sensorUpdateSubscriber;
+
+    @Autowired
+    private StatisticsEngine statisticsEngine;
+
+    @Autowired
+    private SensorAttributeIndex sensorAttributeIndex;
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensor.bootstrap.source}")
+    private String source;
+
+    @Value("${sensor.bootstrap.timeout}")
+    private Duration timeout;
+
+    private volatile long readyMillis = -1;
+
+    @PostConstruct
+    public void init() {
+        TimeGauge.builder("sensor.bootstrap.ready.time", this, TimeUnit.MILLISECONDS, bootstrap -> bootstrap.readyMillis)
+                .description("Time from JVM start until the instance was ready").register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (!sensorUpdateSubscriber.isSubscribed() && System.nanoTime() < deadline) {
+            sensorUpdateSubscriber.subscribe();
+            if (!sensorUpdateSubscriber.isSubscribed()) {
+                Thread.sleep(SUBSCRIBE_RETRY_MILLIS);
+            }
+        }
+        if (sensorUpdateSubscriber.isSubscribed()) {
+            // Subscribing started the statistics load; build the index alongside it so both share one read
+            sensorAttributeIndex.loadIfNotReady();
+            while (!statisticsEngine.isReady() && System.nanoTime() < deadline) {
+                Thread.sleep(POLL_MILLIS);
+            }
+        }
+
+        startupWarmup.warmUp();
+
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (statisticsEngine.isReady() && sensorAttributeIndex.isReady()) {
+            log.info("Read models loaded from {}; ready {} ms after JVM start", source, readyMillis);
+        } else {
+            log.warn("Read models not loaded within {}; ready {} ms after JVM start, loading continues in the background",
+                    timeout, readyMillis);
+        }
+    }
+
+    // -1 until startup has finished
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.api.service;
+
+import com.example.api.analytics.AnalyticsGroupBy;
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.analytics.GroupAggregate;
+import com.example.api.archive.ArchiveSegment;
+import com.example.api.archive.SegmentFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Answers analytics queries over the readings the consumer-service archived
+ * to local segment files, for history beyond the Redis TTL.
+ *
+ * Only the hour partitions the time range covers are listed; each segment's
+ * header zone maps then rule out segments that cannot match, and the rest are
+ * decompressed and aggregated in parallel with the same column filters as the
+ * in-memory {@link ColumnarAnalyticsStore}. Opened segments stay mapped in a
+ * bounded LRU so repeated queries skip the header reads.
+ */
+@Service
+@Slf4j
+public class ReadingArchiveService {
+
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    @Value("${sensor.archive.dir}")
+    private String archiveDir;
+
+    @Value("${sensor.archive.max-open-segments}")
+    private int maxOpenSegments;
+
+    @Value("${sensor.analytics.parallelism}")
+    private int parallelism;
+
+    private Map<Path, ArchiveSegment> openSegments;
+    private ForkJoinPool queryPool;
+
+    @PostConstruct
+    public void init() {
+        openSegments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, ArchiveSegment> eldest) {
+                return size() > maxOpenSegments;
+            }
+        };
+        queryPool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryPool.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> query(AnalyticsQuery query) {
+        long start = System.nanoTime();
+        List<Path> candidates = listSegments(query.getFromMillis(), query.getToMillis());
+        AtomicInteger skipped = new AtomicInteger();
+
+        Map<Object, GroupAggregate> merged = queryPool.submit(() -> candidates.parallelStream()
+                .map(path -> {
+                    Map<Object, GroupAggregate> groups = new HashMap<>();
+                    ArchiveSegment segment = segment(path);
+                    if (segment == null || !segment.overlaps(query)) {
+                        skipped.incrementAndGet();
+                        return groups;
+                    }
+                    aggregate(segment, query, groups);
+                    return groups;
+                })
+                .reduce(new HashMap<>(), ReadingArchiveService::merge, ReadingArchiveService::merge))
+                .join();
+
+        List<Map<String, Object>> groups = new ArrayList<>();
+        merged.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> (Comparable<Object>) entry.getKey()))
+                .forEach(entry -> {
+                    Map<String, Object> group = new LinkedHashMap<>();
+                    if (query.getGroupBy() != null) {
+                        group.put("key", entry.getKey() instanceof Long bucket ? toDateTime(bucket) : entry.getKey());
+                    }
+                    group.putAll(entry.getValue().toMap());
+                    groups.add(group);
+                });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", toDateTime(query.getFromMillis()));
+        result.put("to", toDateTime(query.getToMillis()));
+        result.put("groupBy", query.getGroupBy() == null ? null : query.getGroupBy().getParameterName());
+        result.put("matched", merged.values().stream().mapToLong(GroupAggregate::getCount).sum());
+        result.put("segmentsScanned", candidates.size() - skipped.get());
+        result.put("segmentsSkipped", skipped.get());
+        result.put("groups", groups);
+        result.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    // Adds the segment's matching rows, with group keys translated from its own dictionary codes
+    private void aggregate(ArchiveSegment segment, AnalyticsQuery query, Map<Object, GroupAggregate> groups) {
+        int locationCode = query.getLocation() == null ? -2 : segment.locationCode(query.getLocation());
+        int sensorTypeCode = query.getSensorType() == null ? -2 : segment.sensorTypeCode(query.getSensorType());
+        Map<Long, GroupAggregate> partial = new HashMap<>();
+        try {
+            segment.decode().aggregate(query, locationCode, sensorTypeCode, partial);
+        } catch (IOException e) {
+            log.warn("Skipping unreadable archive segment: {}", e.getMessage());
+            return;
+        }
+
+        AnalyticsGroupBy groupBy = query.getGroupBy();
+        partial.forEach((key, group) -> {
+            Object globalKey;
+            if (groupBy == AnalyticsGroupBy.LOCATION) {
+                globalKey = segment.location(key.intValue());
+            } else if (groupBy == AnalyticsGroupBy.SENSOR_TYPE) {
+                globalKey = segment.sensorType(key.intValue());
+            } else {
+                globalKey = key;
+            }
+            groups.merge(globalKey, group, (a, b) -> {
+                a.merge(b);
+                return a;
+            });
+        });
+    }
+
+    private ArchiveSegment segment(Path path) {
+        synchronized (openSegments) {
+            ArchiveSegment open = openSegments.get(path);
+            if (open != null) {
+                return open;
+            }
+        }
+        try {
+            ArchiveSegment opened = ArchiveSegment.open(path);
+            synchronized (openSegments) {
+                openSegments.put(path, opened);
+            }
+            return opened;
+        } catch (IOException e) {
+            // Deleted by retention since it was listed, or not a segment
+            log.warn("Skipping archive segment {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    // Segment files in the hour partitions overlapping [from, to)
+    private List<Path> listSegments(long from, long to) {
+        List<Path> segments = new ArrayList<>();
+        for (long hour = from - Math.floorMod(from, HOUR_MILLIS); hour < to; hour += HOUR_MILLIS) {
+            Path partition = Paths.get(archiveDir, SegmentFormat.partition(hour));
+            if (!Files.isDirectory(partition)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(partition)) {
+                files.filter(path -> path.getFileName().toString().endsWith(SegmentFormat.EXTENSION))
+                        .forEach(segments::add);
+            } catch (IOException e) {
+                log.warn("Could not list archive partition {}: {}", partition, e.getMessage());
+            }
+        }
+        return segments;
+    }
+
+    private static Map<Object, GroupAggregate> merge(Map<Object, GroupAggregate> into, Map<Object, GroupAggregate> from) {
+        Map<Object, GroupAggregate> merged = new HashMap<>(into);
+        from.forEach((key, group) -> merged.merge(key, group, (a, b) -> {
+            GroupAggregate sum = new GroupAggregate();
+            sum.merge(a);
+            sum.merge(b);
+            return sum;
+        }));
+        return merged;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorReading;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory inverted index from location and sensor type to the sensors that
+ * currently report them.
+ *
+ * Every sensor gets a small integer ordinal and each attribute value maps to a
+ * compressed bitmap of ordinals, so a filter on both attributes is a bitmap
+ * intersection and only the matching sensors are read from Redis. The index
+ * follows the update channel; after (re)subscribing it is rebuilt through the
+ * {@link SensorStateLoader} the first time a filtered lookup needs it (or
+ * eagerly during startup), and until that finishes
+ * {@link #findSensorIds} returns empty so callers fall back to a full read.
+ */
+@Service
+@Slf4j
+public class SensorAttributeIndex implements SensorUpdateListener {
+
+    @Autowired
+    private SensorStateLoader sensorStateLoader;
+
+    @Value("${sensor.redis.ttl}")
+    private Duration readingTtl;
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<TrackedSensor> sensors = new ArrayList<>();
+    private final RoaringBitmap freeOrdinals = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byLocation = new HashMap<>();
+    private final Map<String, RoaringBitmap> bySensorType = new HashMap<>();
+
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile boolean ready;
+
+    @Override
+    public synchronized void onSubscribed() {
+        // Updates were missed; rebuild on the next lookup
+        ready = false;
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        apply(reading, false);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // IDs of the sensors matching the filter, in sensor-id order; empty while the index is being built
+    public Optional<List<String>> findSensorIds(SensorFilter filter) {
+        if (!ready) {
+            loadAsync();
+            return Optional.empty();
+        }
+
+        String[] ids;
+        synchronized (this) {
+            RoaringBitmap matching = null;
+            if (filter.getLocation() != null && !filter.getLocation().isEmpty()) {
+                matching = bitmap(byLocation, filter.getLocation());
+            }
+            if (filter.getSensorType() != null && !filter.getSensorType().isEmpty()) {
+                RoaringBitmap types = bitmap(bySensorType, filter.getSensorType());
+                matching = matching == null ? types : RoaringBitmap.and(matching, types);
+            }
+            if (matching == null) {
+                matching = RoaringBitmap.bitmapOfRange(0, sensors.size());
+                matching.andNot(freeOrdinals);
+            }
+
+            ids = new String[matching.getCardinality()];
+            int i = 0;
+            for (int ordinal : matching) {
+                ids[i++] = sensors.get(ordinal).sensorId;
+            }
+        }
+        Arrays.sort(ids);
+        return Optional.of(Arrays.asList(ids));
+    }
+
+    public synchronized int size() {
+        return ordinals.size();
+    }
+
+    // Builds the index now unless it is ready or already being built
+    public void loadIfNotReady() {
+        if (!ready && loading.compareAndSet(false, true)) {
+            load();
+        }
+    }
+
+    // Rebuild from the current readings; updates that arrived meanwhile win over older loaded values
+    public void load() {
+        try {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                clear();
+            }
+            Collection<SensorReading> readings = sensorStateLoader.loadLatestReadings();
+            readings.forEach(reading -> apply(reading, true));
+            ready = true;
+            log.info("Sensor attribute index loaded {} sensors in {} ms", readings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error loading sensor attribute index: {}", e.getMessage());
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    // Forget sensors that have not reported for longer than the Redis TTL
+    @Scheduled(fixedDelayString = "${sensor.attribute-index.prune-interval}")
+    public synchronized void pruneExpiredSensors() {
+        long cutoff = System.currentTimeMillis() - readingTtl.toMillis();
+        int removed = 0;
+        for (int ordinal = 0; ordinal < sensors.size(); ordinal++) {
+            TrackedSensor tracked = sensors.get(ordinal);
+            if (tracked != null && tracked.receivedAt < cutoff) {
+                remove(ordinal);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("Removed {} expired sensors from attribute index", removed);
+        }
+    }
+
+    private void loadAsync() {
+        if (loading.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::load);
+        }
+    }
+
+    private synchronized void apply(SensorReading reading, boolean fromLoad) {
+        Integer ordinal = ordinals.get(reading.getSensorId());
+        if (ordinal == null) {
+            ordinal = freeOrdinals.isEmpty() ? sensors.size() : freeOrdinals.first();
+            freeOrdinals.remove(ordinal);
+            if (ordinal == sensors.size()) {
+                sensors.add(null);
+            }
+            ordinals.put(reading.getSensorId(), ordinal);
+        } else {
+            TrackedSensor previous = sensors.get(ordinal);
+            if (fromLoad) {
+                // Already updated from the channel since the load started
+                return;
+            }
+            unindex(ordinal, previous);
+        }
+
+        // Loaded sensors expire with their reading in Redis, not a full TTL after the load
+        TrackedSensor tracked = new TrackedSensor(reading.getSensorId(), reading.getLocation(),
+                reading.getSensorType(), fromLoad ? readingMillis(reading) : System.currentTimeMillis());
+        sensors.set(ordinal, tracked);
+        bitmapFor(byLocation, tracked.location).add(ordinal);
+        bitmapFor(bySensorType, tracked.sensorType).add(ordinal);
+    }
+
+    private static long readingMillis(SensorReading reading) {
+        long now = System.currentTimeMillis();
+        return reading.getTimestamp() == null ? now
+                : Math.min(now, reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private void remove(int ordinal) {
+        TrackedSensor tracked = sensors.get(ordinal);
+        unindex(ordinal, tracked);
+        ordinals.remove(tracked.sensorId);
+        sensors.set(ordinal, null);
+        freeOrdinals.add(ordinal);
+    }
+
+    private void unindex(int ordinal, TrackedSensor tracked) {
+        removeFrom(byLocation, tracked.location, ordinal);
+        removeFrom(bySensorType, tracked.sensorType, ordinal);
+    }
+
+    private void clear() {
+        ordinals.clear();
+        sensors.clear();
+        freeOrdinals.clear();
+        byLocation.clear();
+        bySensorType.clear();
+    }
+
+    private static RoaringBitmap bitmap(Map<String, RoaringBitmap> index, String value) {
+        RoaringBitmap bitmap = index.get(value);
+        return bitmap != null ? bitmap : new RoaringBitmap();
+    }
+
+    private static RoaringBitmap bitmapFor(Map<String, RoaringBitmap> index, String value) {
+        return index.computeIfAbsent(value != null ? value : "", key -> new RoaringBitmap());
+    }
+
+    private static void removeFrom(Map<String, RoaringBitmap> index, String value, int ordinal) {
+        String key = value != null ? value : "";
+        RoaringBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private record TrackedSensor(String sensorId, String location, String sensorType, long receivedAt) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorRedisRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Streams every sensor's latest reading as NDJSON or CSV.
+ *
+ * The index is walked one page at a time and each page is fetched with MGET
+ * while the previous one is being written, so an export holds at most two
+ * pages in memory however large the fleet is, and the first bytes go out as
+ * soon as the first page arrives. Readings are read straight from Redis rather
+ * than through the near-cache so an export does not evict the hot entries.
+ *
+ * A filtered export pages through the matching IDs from the attribute index
+ * when it is current, so only the matching sensors are read.
+ */
+@Service
+@Slf4j
+public class SensorExportService {
+
+    private static final String CSV_HEADER = "sensorId,sensorType,location,temperature,pressure,timestamp\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private SensorRedisRepository sensorRedisRepository;
+
+    @Autowired
+    private SensorAttributeIndex sensorAttributeIndex;
+
+    @Autowired
+    private SensorUpdateSubscriber sensorUpdateSubscriber;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${sensor.export.page-size}")
+    private int pageSize;
+
+    // Writes the readings that match the filter and returns how many were written
+    public long export(ExportFormat format, SensorFilter filter, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        long written = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        SequenceWriter json = format == ExportFormat.NDJSON
+                ? objectMapper.writer().withRootValueSeparator("\n").writeValues(writer)
+                : null;
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+
+        Optional<List<String>> matching = !filter.isEmpty() && sensorUpdateSubscriber.isSubscribed()
+                ? sensorAttributeIndex.findSensorIds(filter)
+                : Optional.empty();
+
+        CompletableFuture<ExportPage> next = fetchPage(matching, null);
+        while (next != null) {
+            ExportPage page = next.join();
+            // Fetch the next page while this one is written
+            next = page.nextCursor() != null ? fetchPage(matching, page.nextCursor()) : null;
+
+            for (SensorReading reading : page.readings()) {
+                if (!filter.matches(reading)) {
+                    continue;
+                }
+                if (json != null) {
+                    json.write(reading);
+                } else {
+                    writeCsvRow(writer, reading);
+                }
+                written++;
+            }
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        }
+        if (json != null && written > 0) {
+            writer.write('\n');
+        }
+        writer.flush();
+
+        log.info("Exported {} sensors as {} in {} ms", written, format.getParameterName(),
+                System.currentTimeMillis() - start);
+        return written;
+    }
+
+    // The next page of the matching IDs when known, otherwise of the whole index
+    private CompletableFuture<ExportPage> fetchPage(Optional<List<String>> matching, String cursor) {
+        CompletableFuture<List<String>> idPage = matching
+                .map(ids -> CompletableFuture.completedFuture(pageAfter(ids, cursor)))
+                .orElseGet(() -> sensorRedisRepository.findSensorIdPageAsync(cursor, pageSize));
+        return idPage
+                .thenCompose(ids -> sensorRedisRepository.findReadingsAsync(ids)
+                        .thenApply(readings -> new ExportPage(readings.values(),
+                                ids.size() == pageSize ? ids.get(ids.size() - 1) : null)));
+    }
+
+    private List<String> pageAfter(List<String> sortedIds, String cursor) {
+        int start = 0;
+        if (cursor != null) {
+            int position = Collections.binarySearch(sortedIds, cursor);
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+        return sortedIds.subList(start, Math.min(start + pageSize, sortedIds.size()));
+    }
+
+    private static void writeCsvRow(Writer writer, SensorReading reading) throws IOException {
+        writer.write(csv(reading.getSensorId()));
+        writer.write(',');
+        writer.write(csv(reading.getSensorType()));
+        writer.write(',');
+        writer.write(csv(reading.getLocation()));
+        writer.write(',');
+        writer.write(Double.toString(reading.getTemperature()));
+        writer.write(',');
+        writer.write(Double.toString(reading.getPressure()));
+        writer.write(',');
+        writer.write(reading.getTimestamp() != null ? reading.getTimestamp().toString() : "");
+        writer.write('\n');
+    }
+
+    // Quote values containing separators, quotes or line breaks
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private record ExportPage(Collection<SensorReading> readings, String nextCursor) {
+    }
+}
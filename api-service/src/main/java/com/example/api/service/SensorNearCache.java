@@ -0,0 +1,171 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cache of decoded latest readings, bounded to max-size entries
+ * with least-recently-used eviction.
+ *
+ * Entries are refreshed by readings arriving on the update channel. If an
+ * update is lost (e.g. while the subscription reconnects) the entry still
+ * expires after the configured TTL and the next read goes back to Redis.
+ *
+ * An entry keeps the data version the reading was written at when it is
+ * known (0 otherwise), so /latest can build its ETag without asking Redis.
+ * An entry is never replaced by a reading with a lower known version.
+ */
+@Component
+@Slf4j
+public class SensorNearCache implements SensorUpdateListener {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, CachedReading> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter updates;
+    private final Timer staleness;
+
+    public SensorNearCache(@Value("${sensor.cache.max-size}") int maxSize,
+                           @Value("${sensor.cache.ttl}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReading> eldest) {
+                if (size() > SensorNearCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("sensor.cache.gets").tag("result", "hit")
+                .description("Near-cache lookups served from memory").register(meterRegistry);
+        this.misses = Counter.builder("sensor.cache.gets").tag("result", "miss")
+                .description("Near-cache lookups that went to Redis").register(meterRegistry);
+        this.evictions = Counter.builder("sensor.cache.evictions")
+                .description("Entries evicted because the cache was full").register(meterRegistry);
+        this.updates = Counter.builder("sensor.cache.updates")
+                .description("Entries refreshed from the update channel").register(meterRegistry);
+        this.staleness = Timer.builder("sensor.cache.staleness")
+                .description("Time since a served entry was last refreshed")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("sensor.cache.size", this, SensorNearCache::size).register(meterRegistry);
+        Gauge.builder("sensor.cache.hit.ratio", this, SensorNearCache::hitRatio).register(meterRegistry);
+    }
+
+    public Optional<SensorReading> get(String sensorId) {
+        return lookup(sensorId, false).map(CachedReading::reading);
+    }
+
+    // The cached reading with the version it was written at; entries without a known version are misses
+    public Optional<SensorUpdate> getWithVersion(String sensorId) {
+        return lookup(sensorId, true).map(cached -> new SensorUpdate(cached.reading, cached.version));
+    }
+
+    private Optional<CachedReading> lookup(String sensorId, boolean versionRequired) {
+        long now = System.currentTimeMillis();
+        CachedReading cached;
+        synchronized (entries) {
+            cached = entries.get(sensorId);
+            if (cached != null && now - cached.cachedAt > ttlMillis) {
+                entries.remove(sensorId);
+                cached = null;
+            }
+        }
+
+        if (cached == null || (versionRequired && cached.version <= 0)) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        staleness.record(now - cached.cachedAt, TimeUnit.MILLISECONDS);
+        return Optional.of(cached);
+    }
+
+    // Cached readings for the given sensors; sensors not in the result need a Redis read
+    public Map<String, SensorReading> getAll(Collection<String> sensorIds) {
+        Map<String, SensorReading> found = new LinkedHashMap<>();
+        for (String sensorId : sensorIds) {
+            get(sensorId).ifPresent(reading -> found.put(sensorId, reading));
+        }
+        return found;
+    }
+
+    public void put(SensorReading reading) {
+        put(reading, 0);
+    }
+
+    // version is the data version the reading was written at, 0 when unknown
+    public void put(SensorReading reading, long version) {
+        if (maxSize <= 0) {
+            return;
+        }
+        CachedReading cached = new CachedReading(reading, version, System.currentTimeMillis());
+        synchronized (entries) {
+            CachedReading current = entries.get(reading.getSensorId());
+            if (current == null || current.version <= version) {
+                entries.put(reading.getSensorId(), cached);
+            }
+        }
+    }
+
+    public void putAll(Collection<SensorReading> readings) {
+        readings.forEach(this::put);
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        onSensorUpdate(reading, 0);
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading, long version) {
+        put(reading, version);
+        updates.increment();
+    }
+
+    // Anything cached before the subscription started may have missed updates
+    @Override
+    public void onSubscribed() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double hitCount = hits.count();
+        double total = hitCount + misses.count();
+        return total == 0 ? 0.0 : hitCount / total;
+    }
+
+    private record CachedReading(SensorReading reading, long version, long cachedAt) {
+    }
+}
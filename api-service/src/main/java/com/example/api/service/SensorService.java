@@ -1,29 +1,77 @@
 package com.example.api.service;
 
+import com.example.api.model.SensorChanges;
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorMetric;
+import com.example.api.model.SensorPage;
 import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import com.example.api.profiling.RedisFetchEvent;
+import com.example.api.repository.SensorRedisRepository;
+import com.example.api.sharding.RedisShards;
+import com.example.api.stats.StatisticsDimension;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class SensorService {
 
+    public static final double[] DEFAULT_PERCENTILES = {50, 95, 99};
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private SensorRedisRepository sensorRedisRepository;
+
+    @Autowired
+    private SensorNearCache sensorNearCache;
+
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StatisticsEngine statisticsEngine;
+
+    @Autowired
+    private SensorUpdateSubscriber sensorUpdateSubscriber;
+
+    @Autowired
+    private SensorAttributeIndex sensorAttributeIndex;
 
     @Value("${sensor.redis.key-prefix}")
     private String redisKeyPrefix;
 
+    @Value("${sensor.api.default-page-size}")
+    private int defaultPageSize;
+
+    @Value("${sensor.api.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${sensor.api.max-changes}")
+    private int maxChanges;
+
+    @Value("${sensor.api.coalesce-ttl}")
+    private Duration coalesceTtl;
+
+    @Value("${sensor.api.coalesce-max-entries}")
+    private int coalesceMaxEntries;
+
+    // Identical concurrent reads share one computation; keys include the data version so a shared
+    // result is never older than the version the response is labelled with
+    private SingleFlight<List<Object>, List<SensorReading>> allReadingsFlights;
+    private SingleFlight<List<Object>, SensorPage<SensorReading>> pageFlights;
+    private SingleFlight<List<Object>, Map<String, Object>> statisticsFlights;
+
     private final ObjectMapper objectMapper;
 
     public SensorService() {
@@ -33,17 +81,53 @@ public class SensorService {
 
     @PostConstruct
     public void init() {
+        allReadingsFlights = new SingleFlight<>(coalesceTtl.toNanos(), coalesceMaxEntries);
+        pageFlights = new SingleFlight<>(coalesceTtl.toNanos(), coalesceMaxEntries);
+        statisticsFlights = new SingleFlight<>(coalesceTtl.toNanos(), coalesceMaxEntries);
         log.info("Sensor Service initialized with Redis key prefix: {}", redisKeyPrefix);
     }
 
     // Get sensor data by ID
     public Optional<SensorReading> getLatestSensorReading(String sensorId) {
+        return getLatestSensorReading(sensorId, 0);
+    }
+
+    // Get sensor data at least as new as minVersion; the near-cache is skipped until it has caught up
+    public Optional<SensorReading> getLatestSensorReading(String sensorId, long minVersion) {
+        if (minVersion <= sensorUpdateSubscriber.currentVersion(sensorId).orElse(0)) {
+            Optional<SensorReading> cached = sensorNearCache.get(sensorId);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        return loadLatestSensorReading(sensorId, minVersion);
+    }
+
+    // The near-cached reading with the version it was written at, without going to Redis; empty when
+    // the cache does not hold it with a version or may have missed updates (not subscribed)
+    public Optional<SensorUpdate> getCachedSensorUpdate(String sensorId) {
+        return sensorUpdateSubscriber.isSubscribed() ? sensorNearCache.getWithVersion(sensorId) : Optional.empty();
+    }
+
+    // Read the reading from Redis and near-cache it; version is what the caller read for the sensor
+    // before this, so the reading is at least that new and is cached as of it
+    public Optional<SensorReading> loadLatestSensorReading(String sensorId, long version) {
         try {
             String redisKey = redisKeyPrefix + sensorId;
-            Object value = redisTemplate.opsForValue().get(redisKey);
+            RedisFetchEvent event = new RedisFetchEvent();
+            event.begin();
+            Object value = redisShards.templateFor(sensorId).opsForValue().get(redisKey);
+            SensorReading reading = value != null ? deserializeSensorReading(value) : null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.setShard(redisShards.forSensor(sensorId).getName());
+                event.setRequested(1);
+                event.setFound(reading != null ? 1 : 0);
+                event.commit();
+            }
             
-            if (value != null) {
-                SensorReading reading = deserializeSensorReading(value);
+            if (reading != null) {
+                sensorNearCache.put(reading, version);
                 return Optional.of(reading);
             }
             
@@ -58,90 +142,172 @@ public class SensorService {
     // Get all sensor data
     public List<SensorReading> getAllLatestSensorReadings() {
         try {
-            Set<String> keys = redisTemplate.keys(redisKeyPrefix + "*");
-            if (keys == null || keys.isEmpty()) {
-                return Collections.emptyList();
+            return getAllLatestSensorReadingsAsync().join();
+        } catch (Exception e) {
+            log.error("Error retrieving all sensor data: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    public CompletableFuture<List<SensorReading>> getAllLatestSensorReadingsAsync() {
+        return allReadingsFlights.execute(queryKey(), () -> sensorRedisRepository.findAllSensorIdsAsync()
+                .thenCompose(this::readThroughCache)
+                .thenApply(readings -> new ArrayList<>(readings.values())));
+    }
+
+    // Get one page of sensor data, ordered by sensor ID
+    public CompletableFuture<SensorPage<SensorReading>> getLatestSensorReadingPageAsync(String cursor, Integer limit) {
+        return getLatestSensorReadingPageAsync(cursor, limit, new SensorFilter());
+    }
+
+    // Same, limited to sensors at a location and/or of a type
+    public CompletableFuture<SensorPage<SensorReading>> getLatestSensorReadingPageAsync(String cursor, Integer limit,
+                                                                                       SensorFilter filter) {
+        return pageFlights.execute(queryKey(cursor, pageSize(limit), filter), () -> {
+            CompletableFuture<SensorPage<String>> idPage = filter.isEmpty()
+                    ? getSensorIdPageAsync(cursor, limit)
+                    : findMatchingSensorIdsAsync(filter).thenApply(ids -> pageOf(ids, cursor, pageSize(limit)));
+            return idPage
+                    .thenCompose(ids -> readThroughCache(ids.getItems())
+                            .thenApply(readings -> new SensorPage<>(readings.values().stream()
+                                    .filter(filter::matches)
+                                    .toList(), ids.getNextCursor())));
+        }).exceptionally(e -> {
+            log.error("Error retrieving sensor data page: {}", e.getMessage());
+            return new SensorPage<>(Collections.emptyList(), null);
+        });
+    }
+
+    // Get the sensors written after the data versions in the since cursor. Falls back to a full
+    // snapshot when the client has never synced, is ahead of this data on any shard (e.g. Redis was
+    // reset), synced before sensors were pruned, holds a cursor for another set of shards, or is so
+    // far behind that the delta would be larger than max-changes.
+    // Every shard assigns a write's version in the script that indexes it, so a shard's version is
+    // never ahead of its change log and a cursor cannot skip a write still in flight
+    public CompletableFuture<SensorChanges> getChangesSinceAsync(String since) {
+        CompletableFuture<List<Long>> prunedVersions = sensorRedisRepository.findPrunedVersionsAsync();
+        return sensorRedisRepository.findDataVersionsAsync().thenCompose(versions -> prunedVersions.thenCompose(pruned -> {
+            List<Long> from = parseCursor(since, versions.size());
+            if (from == null || !canResume(from, versions, pruned)) {
+                return getSnapshotAsync(versions);
             }
+            return sensorRedisRepository.findChangedSensorIdsAsync(from, versions, maxChanges + 1)
+                    .thenCompose(ids -> ids.size() > maxChanges
+                            ? getSnapshotAsync(versions)
+                            : readingsAsOf(ids, versions).thenApply(readings ->
+                                    new SensorChanges(cursor(versions), false, new ArrayList<>(readings.values()))));
+        }));
+    }
 
-            List<SensorReading> readings = new ArrayList<>();
-            for (String key : keys) {
-                try {
-                    Object value = redisTemplate.opsForValue().get(key);
-                    if (value != null) {
-                        SensorReading reading = deserializeSensorReading(value);
-                        readings.add(reading);
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to read sensor data for key {}: {}", key, e.getMessage());
-                }
+    private CompletableFuture<SensorChanges> getSnapshotAsync(List<Long> versions) {
+        return sensorRedisRepository.findAllSensorIdsAsync()
+                .thenCompose(ids -> readingsAsOf(ids, versions))
+                .thenApply(readings -> new SensorChanges(cursor(versions), true, new ArrayList<>(readings.values())));
+    }
+
+    // Readings at least as new as the shards' versions: through the near-cache once it has caught up
+    // on every shard, from Redis before
+    private CompletableFuture<Map<String, SensorReading>> readingsAsOf(List<String> sensorIds, List<Long> versions) {
+        List<Long> applied = sensorUpdateSubscriber.currentVersions().orElse(null);
+        boolean caughtUp = applied != null && applied.size() == versions.size();
+        for (int i = 0; caughtUp && i < versions.size(); i++) {
+            caughtUp = versions.get(i) <= applied.get(i);
+        }
+        return caughtUp
+                ? readThroughCache(sensorIds)
+                : sensorRedisRepository.findReadingsAsync(sensorIds);
+    }
+
+    // A cursor lists the data version of every shard, in shard order, separated by dots
+    private static String cursor(List<Long> versions) {
+        return versions.stream().map(String::valueOf).collect(Collectors.joining("."));
+    }
+
+    // The versions in the cursor; null when there is none or it does not fit the shards
+    private static List<Long> parseCursor(String cursor, int shards) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != shards) {
+            return null;
+        }
+        List<Long> versions = new ArrayList<>(parts.length);
+        try {
+            for (String part : parts) {
+                versions.add(Long.parseLong(part));
             }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return versions;
+    }
 
-            // Sort by sensor ID
-            readings.sort(Comparator.comparing(SensorReading::getSensorId));
-            
-            return readings;
-            
-        } catch (Exception e) {
-            log.error("Error retrieving all sensor data: {}", e.getMessage());
-            return Collections.emptyList();
+    // Whether a client at the from versions has synced before and can still catch up incrementally
+    private static boolean canResume(List<Long> from, List<Long> versions, List<Long> pruned) {
+        long synced = 0;
+        for (int i = 0; i < from.size(); i++) {
+            if (from.get(i) < 0 || from.get(i) > versions.get(i) || from.get(i) < pruned.get(i)) {
+                return false;
+            }
+            synced += from.get(i);
         }
+        return synced > 0;
+    }
+
+    // Get sensors whose latest metric value lies in [min, max] (null = unbounded), lowest first, one
+    // page at a time. Readings that moved out of the range since the index was read are left out
+    public CompletableFuture<List<SensorReading>> getSensorReadingsInRangeAsync(SensorMetric metric, Double min,
+                                                                             Double max, Integer offset, Integer limit) {
+        int pageSize = pageSize(limit);
+        int start = offset == null ? 0 : Math.max(0, offset);
+        return sensorRedisRepository.findSensorIdsInRangeAsync(metric, min, max, start, pageSize)
+                .thenCompose(this::readThroughCache)
+                .thenApply(readings -> readings.values().stream()
+                        .filter(reading -> (min == null || metric.valueOf(reading) >= min)
+                                && (max == null || metric.valueOf(reading) <= max))
+                        .toList());
     }
 
     // Get multiple sensors
     public Map<String, SensorReading> getSensorReadings(List<String> sensorIds) {
-        Map<String, SensorReading> results = new HashMap<>();
-        
-        for (String sensorId : sensorIds) {
-            Optional<SensorReading> reading = getLatestSensorReading(sensorId);
-            reading.ifPresent(r -> results.put(sensorId, r));
-        }
-        
-        return results;
+        return getSensorReadingsAsync(sensorIds).join();
+    }
+
+    public CompletableFuture<Map<String, SensorReading>> getSensorReadingsAsync(List<String> sensorIds) {
+        return readThroughCache(sensorIds)
+                .exceptionally(e -> {
+                    log.error("Error getting sensor data for batch: {}", e.getMessage());
+                    return Collections.emptyMap();
+                });
+    }
+
+    // Get stats, optionally grouped by location or sensor type
+    public Map<String, Object> getSensorStatistics(StatisticsDimension groupBy, double[] percentiles) {
+        return getSensorStatistics(groupBy, percentiles, new SensorFilter());
     }
 
-    // Get stats
-    public Map<String, Object> getSensorStatistics() {
+    // Same, over the sensors at a location and/or of a type only
+    public Map<String, Object> getSensorStatistics(StatisticsDimension groupBy, double[] percentiles,
+                                                   SensorFilter filter) {
         try {
-            Set<String> keys = redisTemplate.keys(redisKeyPrefix + "*");
-            int totalSensors = keys != null ? keys.size() : 0;
-            
-            List<SensorReading> readings = getAllLatestSensorReadings();
-            
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalSensors", totalSensors);
-            stats.put("activeSensors", readings.size());
-            
-            if (!readings.isEmpty()) {
-                double avgTemp = readings.stream()
-                    .mapToDouble(SensorReading::getTemperature)
-                    .average()
-                    .orElse(0.0);
-                
-                double avgPressure = readings.stream()
-                    .mapToDouble(SensorReading::getPressure)
-                    .average()
-                    .orElse(0.0);
-                
-                double minTemp = readings.stream()
-                    .mapToDouble(SensorReading::getTemperature)
-                    .min()
-                    .orElse(0.0);
-                
-                double maxTemp = readings.stream()
-                    .mapToDouble(SensorReading::getTemperature)
-                    .max()
-                    .orElse(0.0);
-                
-                // Round to 2 decimal places
-                stats.put("averageTemperature", Math.round(avgTemp * 100.0) / 100.0);
-                stats.put("averagePressure", Math.round(avgPressure * 100.0) / 100.0);
-                stats.put("minTemperature", Math.round(minTemp * 100.0) / 100.0);
-                stats.put("maxTemperature", Math.round(maxTemp * 100.0) / 100.0);
+            if (filter.isEmpty() && statisticsEngine.isReady() && sensorUpdateSubscriber.isSubscribed()) {
+                return statisticsEngine.query(groupBy, percentiles);
             }
-            
-            stats.put("timestamp", System.currentTimeMillis());
-            
-            return stats;
+
+            // Filtered, or the engine is still loading or not receiving updates: aggregate the
+            // current readings in one pass
+            List<Object> key = queryKey(groupBy, Arrays.toString(percentiles), filter);
+            return statisticsFlights.execute(key, () -> {
+                CompletableFuture<List<SensorReading>> readings = filter.isEmpty()
+                        ? getAllLatestSensorReadingsAsync()
+                        : findMatchingSensorIdsAsync(filter)
+                                .thenCompose(this::readThroughCache)
+                                .thenApply(matching -> matching.values().stream()
+                                        .filter(filter::matches)
+                                        .toList());
+                return readings.thenApply(matching -> statisticsEngine.aggregate(matching, groupBy, percentiles));
+            }).join();
             
         } catch (Exception e) {
             log.error("Error getting stats: {}", e.getMessage());
@@ -149,30 +315,127 @@ public class SensorService {
         }
     }
 
+    // Version of everything this instance serves from the near-cache and Redis; empty when it cannot
+    // tell (not subscribed to updates), in which case responses should not be marked cacheable
+    public OptionalLong getDataVersion() {
+        return sensorUpdateSubscriber.currentVersion();
+    }
+
+    // Version of the last write to one sensor, read from Redis without touching the reading itself
+    public OptionalLong getSensorVersion(String sensorId) {
+        try {
+            return sensorRedisRepository.findSensorVersion(sensorId);
+        } catch (Exception e) {
+            log.error("Error getting version for sensor {}: {}", sensorId, e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    // Identifies the statistics /statistics currently returns: the data version plus the engine's
+    // own changes (reloads and expiry)
+    public Optional<String> getStatisticsVersion() {
+        OptionalLong dataVersion = getDataVersion();
+        if (dataVersion.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(dataVersion.getAsLong() + "." + statisticsEngine.getRevision());
+    }
+
     public boolean sensorExists(String sensorId) {
         String redisKey = redisKeyPrefix + sensorId;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
+        return Boolean.TRUE.equals(redisShards.templateFor(sensorId).hasKey(redisKey));
     }
 
     // Get all sensor IDs
     public List<String> getAllSensorIds() {
         try {
-            Set<String> keys = redisTemplate.keys(redisKeyPrefix + "*");
-            if (keys == null || keys.isEmpty()) {
-                return Collections.emptyList();
-            }
-            
-            return keys.stream()
-                .map(key -> key.substring(redisKeyPrefix.length()))
-                .sorted()
-                .collect(Collectors.toList());
-                
+            return sensorRedisRepository.findAllSensorIds();
         } catch (Exception e) {
             log.error("Error getting sensor IDs: {}", e.getMessage());
             return Collections.emptyList();
         }
     }
 
+    // Get one page of sensor IDs; the page size is capped at sensor.api.max-page-size
+    public SensorPage<String> getSensorIdPage(String cursor, Integer limit) {
+        return getSensorIdPageAsync(cursor, limit).join();
+    }
+
+    public CompletableFuture<SensorPage<String>> getSensorIdPageAsync(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        return sensorRedisRepository.findSensorIdPageAsync(cursor, pageSize)
+                .thenApply(ids -> new SensorPage<>(ids, ids.size() == pageSize ? ids.get(ids.size() - 1) : null));
+    }
+
+    // IDs of the sensors matching the filter in sensor-id order: from the attribute index when it is
+    // current, otherwise by reading every sensor
+    public CompletableFuture<List<String>> findMatchingSensorIdsAsync(SensorFilter filter) {
+        Optional<List<String>> indexed = sensorUpdateSubscriber.isSubscribed()
+                ? sensorAttributeIndex.findSensorIds(filter)
+                : Optional.empty();
+        if (indexed.isPresent()) {
+            return CompletableFuture.completedFuture(indexed.get());
+        }
+        return getAllLatestSensorReadingsAsync().thenApply(readings -> readings.stream()
+                .filter(filter::matches)
+                .map(SensorReading::getSensorId)
+                .sorted()
+                .toList());
+    }
+
+    public CompletableFuture<Long> countSensorsAsync() {
+        return sensorRedisRepository.countSensorsAsync();
+    }
+
+    // The query's parameters plus the data version (-1 when unknown) the result will reflect
+    private List<Object> queryKey(Object... parameters) {
+        List<Object> key = new ArrayList<>(parameters.length + 1);
+        key.add(sensorUpdateSubscriber.currentVersion().orElse(-1));
+        key.addAll(Arrays.asList(parameters));
+        return key;
+    }
+
+    private int pageSize(Integer limit) {
+        return limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // The page of sorted IDs that follows the cursor
+    private static SensorPage<String> pageOf(List<String> sortedIds, String cursor, int pageSize) {
+        int start = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            int position = Collections.binarySearch(sortedIds, cursor);
+            start = position >= 0 ? position + 1 : -position - 1;
+        }
+        int end = Math.min(start + pageSize, sortedIds.size());
+        List<String> page = sortedIds.subList(start, end);
+        return new SensorPage<>(page, end < sortedIds.size() ? page.get(page.size() - 1) : null);
+    }
+
+    // Serve what the near-cache has and bulk-read the rest from Redis, keeping request order;
+    // sensors that expired since they were indexed are skipped
+    private CompletableFuture<Map<String, SensorReading>> readThroughCache(List<String> sensorIds) {
+        Map<String, SensorReading> cached = sensorNearCache.getAll(sensorIds);
+        if (cached.size() == sensorIds.size()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        List<String> missing = sensorIds.stream()
+                .filter(sensorId -> !cached.containsKey(sensorId))
+                .toList();
+        return sensorRedisRepository.findReadingsAsync(missing).thenApply(loaded -> {
+            sensorNearCache.putAll(loaded.values());
+
+            Map<String, SensorReading> readings = new LinkedHashMap<>();
+            for (String sensorId : sensorIds) {
+                SensorReading reading = cached.containsKey(sensorId) ? cached.get(sensorId) : loaded.get(sensorId);
+                if (reading != null) {
+                    readings.put(sensorId, reading);
+                }
+            }
+            return readings;
+        });
+    }
+
     // Helper to convert Redis data
     private SensorReading deserializeSensorReading(Object value) throws JsonProcessingException {
         if (value instanceof SensorReading) {
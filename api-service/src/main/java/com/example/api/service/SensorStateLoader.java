@@ -0,0 +1,74 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorRedisRepository;
+import com.example.api.repository.SensorStateTopicReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Source of the full latest state the in-memory read models are rebuilt from.
+ *
+ * With sensor.bootstrap.source=kafka the state is bulk-read from the
+ * log-compacted latest-state topic instead of scanning Redis, which also
+ * works after Redis lost its data; readings older than the Redis TTL are
+ * left out, and a failed topic read falls back to Redis. Read models that
+ * load at the same time share one read.
+ */
+@Service
+@Slf4j
+public class SensorStateLoader {
+
+    public static final String SOURCE_KAFKA = "kafka";
+
+    @Autowired
+    private SensorRedisRepository sensorRedisRepository;
+
+    @Autowired
+    private SensorStateTopicReader sensorStateTopicReader;
+
+    @Value("${sensor.bootstrap.source}")
+    private String source;
+
+    @Value("${sensor.bootstrap.timeout}")
+    private Duration timeout;
+
+    @Value("${sensor.redis.ttl}")
+    private Duration readingTtl;
+
+    // In-flight sharing only: a later load must not see state from before its subscription
+    private final SingleFlight<String, Collection<SensorReading>> loads = new SingleFlight<>(0, 1);
+
+    public Collection<SensorReading> loadLatestReadings() {
+        try {
+            return loads.execute(source, () -> CompletableFuture.supplyAsync(this::load)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private Collection<SensorReading> load() {
+        if (SOURCE_KAFKA.equalsIgnoreCase(source)) {
+            try {
+                long start = System.currentTimeMillis();
+                LocalDateTime cutoff = LocalDateTime.now().minus(readingTtl);
+                Collection<SensorReading> readings = sensorStateTopicReader.readAll(timeout).values().stream()
+                        .filter(reading -> reading.getTimestamp() == null || !reading.getTimestamp().isBefore(cutoff))
+                        .toList();
+                log.info("Read {} sensors from the latest-state topic in {} ms", readings.size(), System.currentTimeMillis() - start);
+                return readings;
+            } catch (Exception e) {
+                log.warn("Could not read the latest-state topic, loading from Redis: {}", e.getMessage());
+            }
+        }
+        return sensorRedisRepository.findReadings(sensorRedisRepository.findAllSensorIds()).values();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Pushes changed readings to Server-Sent Events clients.
+ *
+ * Updates come from the instance's single Redis subscription. Each client has
+ * a conflated buffer holding at most one pending reading per sensor: while a
+ * send to a slow client is in progress newer readings simply replace older
+ * ones, so memory per client is bounded by the number of sensors it follows
+ * and a slow client receives the latest values rather than a growing backlog.
+ *
+ * Clients take turns on the send threads: a task sends one event and queues
+ * the client again if more is pending, so a busy client cannot keep a thread
+ * from the others. A send blocked on a client that stopped reading fails
+ * after the connector's connection timeout (server.tomcat.connection-timeout),
+ * and the client is dropped.
+ */
+@Service
+@Slf4j
+public class SensorStreamService implements SensorUpdateListener {
+
+    private static final String SNAPSHOT_EVENT = "snapshot";
+    private static final String READINGS_EVENT = "readings";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensor.stream.max-clients}")
+    private int maxClients;
+
+    @Value("${sensor.stream.timeout}")
+    private Duration streamTimeout;
+
+    @Value("${sensor.stream.send-threads}")
+    private int sendThreads;
+
+    private final Map<Long, StreamClient> clients = new ConcurrentHashMap<>();
+    private final AtomicLong clientIds = new AtomicLong();
+    private ExecutorService sendExecutor;
+    private Counter eventsSent;
+    private Counter readingsSent;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sensor-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("sensor.stream.clients", clients, Map::size)
+                .description("Connected stream clients").register(meterRegistry);
+        eventsSent = Counter.builder("sensor.stream.events")
+                .description("Events sent to stream clients").register(meterRegistry);
+        readingsSent = Counter.builder("sensor.stream.readings")
+                .description("Readings sent to stream clients after conflation").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.values().forEach(client -> client.emitter.complete());
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for the given sensors (all sensors when empty). The first
+     * event is a snapshot of the current readings; later events carry only the
+     * readings that changed since the previous event. Returns empty when the
+     * instance already serves max-clients streams.
+     */
+    public Optional<SseEmitter> subscribe(Collection<String> sensorIds, Supplier<List<SensorReading>> snapshotLoader) {
+        if (clients.size() >= maxClients) {
+            return Optional.empty();
+        }
+
+        long id = clientIds.incrementAndGet();
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Set<String> filter = sensorIds == null || sensorIds.isEmpty() ? null : new HashSet<>(sensorIds);
+        StreamClient client = new StreamClient(id, emitter, filter);
+
+        emitter.onCompletion(() -> clients.remove(id));
+        emitter.onTimeout(() -> clients.remove(id));
+        emitter.onError(e -> clients.remove(id));
+
+        // Register before reading the snapshot so no update falls in between;
+        // updates are buffered until the snapshot has been sent
+        client.sending.set(true);
+        clients.put(id, client);
+        // The snapshot may be the whole fleet, so it is read and sent off the request thread
+        sendExecutor.execute(() -> client.sendSnapshot(snapshotLoader));
+
+        log.debug("Stream client {} connected ({} sensors)", id, filter == null ? "all" : filter.size());
+        return Optional.of(emitter);
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        for (StreamClient client : clients.values()) {
+            if (client.accepts(reading.getSensorId())) {
+                client.offer(reading);
+            }
+        }
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    // Comment line so idle connections are not closed by proxies and dead clients get detected
+    @Scheduled(fixedDelayString = "${sensor.stream.heartbeat-interval}")
+    public void sendHeartbeats() {
+        for (StreamClient client : clients.values()) {
+            if (!client.sending.get()) {
+                sendExecutor.execute(() -> client.send(SseEmitter.event().comment("heartbeat")));
+            }
+        }
+    }
+
+    private final class StreamClient {
+        private final long id;
+        private final SseEmitter emitter;
+        private final Set<String> sensorFilter;
+
+        // Latest unsent reading per sensor
+        private final Map<String, SensorReading> pending = new LinkedHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private StreamClient(long id, SseEmitter emitter, Set<String> sensorFilter) {
+            this.id = id;
+            this.emitter = emitter;
+            this.sensorFilter = sensorFilter;
+        }
+
+        boolean accepts(String sensorId) {
+            return sensorFilter == null || sensorFilter.contains(sensorId);
+        }
+
+        void offer(SensorReading reading) {
+            synchronized (pending) {
+                pending.put(reading.getSensorId(), reading);
+            }
+            if (sending.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        private void sendSnapshot(Supplier<List<SensorReading>> snapshotLoader) {
+            List<SensorReading> snapshot;
+            try {
+                snapshot = snapshotLoader.get();
+            } catch (Exception e) {
+                log.warn("Stream client {} dropped, snapshot failed: {}", id, e.getMessage());
+                clients.remove(id);
+                emitter.completeWithError(e);
+                return;
+            }
+            if (send(SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot, MediaType.APPLICATION_JSON))) {
+                drain();
+            }
+        }
+
+        // Send what is pending as one event, then go to the back of the queue if more has arrived
+        private void drain() {
+            List<SensorReading> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            if (!batch.isEmpty()) {
+                if (!send(SseEmitter.event().name(READINGS_EVENT).data(batch, MediaType.APPLICATION_JSON))) {
+                    return;
+                }
+                readingsSent.increment(batch.size());
+            }
+
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    sending.set(false);
+                    return;
+                }
+            }
+            sendExecutor.execute(this::drain);
+        }
+
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                synchronized (emitter) {
+                    emitter.send(event);
+                }
+                eventsSent.increment();
+                return true;
+            } catch (Exception e) {
+                log.debug("Stream client {} disconnected: {}", id, e.getMessage());
+                clients.remove(id);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+
+/**
+ * Receives every reading the consumer publishes on the update channel.
+ * Implementations are called on the single subscriber thread, in publish order.
+ */
+public interface SensorUpdateListener {
+
+    void onSensorUpdate(SensorReading reading);
+
+    // Same, with the data version the consumer wrote the reading at (0 when it does not track versions)
+    default void onSensorUpdate(SensorReading reading, long version) {
+        onSensorUpdate(reading);
+    }
+
+    // Called once the subscription is established; updates published before this were missed
+    default void onSubscribed() {
+    }
+}
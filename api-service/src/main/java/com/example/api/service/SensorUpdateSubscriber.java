@@ -0,0 +1,223 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import com.example.api.repository.SensorReadingCodec;
+import com.example.api.sharding.RedisShard;
+import com.example.api.sharding.RedisShards;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one Redis subscription per api-service instance (one per shard when
+ * sensors are sharded, each shard publishing its own sensors' updates).
+ * Decodes each published reading once and hands it to every
+ * {@link SensorUpdateListener}.
+ *
+ * The listener container is started here rather than with the context so the
+ * service still starts while Redis is down; the subscription is retried until
+ * it succeeds, after which the container handles reconnects itself. Updates
+ * the full delivery queue turns away are lost like updates missed while not
+ * subscribed, so they mark the subscription lost and the next retry resyncs
+ * the listeners.
+ *
+ * It also tracks, per shard, the data version the listeners have caught up
+ * with: every update carries the version its shard assigned to it in the same
+ * script that stored it, so a shard's updates arrive in version order, and the
+ * shard's version only advances after all listeners have applied the update.
+ * Anything served from the near-cache or the statistics engine for a sensor is
+ * therefore at least as new as {@link #currentVersion(String)}. Versions of
+ * different shards are unrelated numbers and are never compared.
+ */
+@Component
+@Slf4j
+public class SensorUpdateSubscriber {
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private SensorReadingCodec sensorReadingCodec;
+
+    @Autowired
+    private List<SensorUpdateListener> listeners;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("sensorUpdateExecutor")
+    private ThreadPoolTaskExecutor sensorUpdateExecutor;
+
+    @Value("${sensor.redis.update-channel}")
+    private String updateChannel;
+
+    @Value("${sensor.redis.version-key}")
+    private String versionKey;
+
+    private volatile boolean subscribed;
+    private final AtomicLong droppedUpdates = new AtomicLong();
+    // Shard name -> version of the shard's latest update the listeners have applied
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private Timer updateDelay;
+
+    @PostConstruct
+    public void init() {
+        // Last hop of the pipeline: the consumer-service records generation until stored in Redis
+        // (sensor.ingest.latency), this continues until the read models here serve the reading
+        updateDelay = Timer.builder("sensor.update.delay")
+                .description("Time from reading generation until the api-service read models applied it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        FunctionCounter.builder("sensor.update.dropped", droppedUpdates, AtomicLong::get)
+                .description("Updates dropped because the delivery queue was full")
+                .register(meterRegistry);
+        sensorUpdateExecutor.getThreadPoolExecutor().setRejectedExecutionHandler((task, executor) -> dropUpdate());
+        for (RedisShard shard : redisShards.all()) {
+            shard.getListenerContainer().addMessageListener((message, pattern) -> onMessage(shard, message),
+                    new ChannelTopic(updateChannel));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.redis.subscribe-retry-interval}")
+    public synchronized void subscribe() {
+        if (subscribed) {
+            return;
+        }
+        try {
+            for (RedisShard shard : redisShards.all()) {
+                shard.getListenerContainer().start();
+            }
+            long dropped = droppedUpdates.get();
+            listeners.forEach(SensorUpdateListener::onSubscribed);
+            // Updates before the subscription were missed and the listeners have just reset,
+            // so they are current as of the stored versions
+            for (RedisShard shard : redisShards.all()) {
+                String stored = shard.getStringRedisTemplate().opsForValue().get(versionKey);
+                advanceVersion(shard, stored != null ? Long.parseLong(stored) : 0);
+            }
+            subscribed = true;
+            // An update dropped while the listeners reset may be missing from what they reloaded;
+            // checked after setting the flag so a drop from here on clears it again
+            if (droppedUpdates.get() != dropped) {
+                subscribed = false;
+                return;
+            }
+            log.info("Subscribed to sensor updates on channel {} of {} Redis node(s) with {} listeners",
+                    updateChannel, redisShards.all().size(), listeners.size());
+        } catch (Exception e) {
+            // A failed start leaves the container marked as started; all shards are retried together
+            for (RedisShard shard : redisShards.all()) {
+                shard.getListenerContainer().stop();
+            }
+            log.warn("Could not subscribe to sensor updates, retrying: {}", e.getMessage());
+        }
+    }
+
+    // False until the first subscription succeeds and after updates were dropped; listeners may be
+    // missing updates until the next subscription
+    public boolean isSubscribed() {
+        return subscribed && redisShards.all().stream()
+                .allMatch(shard -> shard.getListenerContainer().isListening());
+    }
+
+    // Identifies the data the listeners have caught up with: the sum of the shards' versions, which
+    // grows with every applied update. Empty while not subscribed or when the consumer does not
+    // publish versions
+    public OptionalLong currentVersion() {
+        long sum = 0;
+        for (long version : versions.values()) {
+            sum += version;
+        }
+        return isSubscribed() && sum > 0 ? OptionalLong.of(sum) : OptionalLong.empty();
+    }
+
+    // Version of the sensor's shard the listeners have caught up with; empty as above
+    public OptionalLong currentVersion(String sensorId) {
+        long version = versions.getOrDefault(redisShards.forSensor(sensorId).getName(), 0L);
+        return isSubscribed() && version > 0 ? OptionalLong.of(version) : OptionalLong.empty();
+    }
+
+    // Versions each shard has been caught up with, in shard order; empty while not subscribed
+    public Optional<List<Long>> currentVersions() {
+        if (!isSubscribed()) {
+            return Optional.empty();
+        }
+        return Optional.of(redisShards.all().stream()
+                .map(shard -> versions.getOrDefault(shard.getName(), 0L))
+                .toList());
+    }
+
+    // An update published on the shard's channel
+    void onMessage(RedisShard shard, Message message) {
+        SensorUpdate update;
+        try {
+            update = sensorReadingCodec.decodeUpdate(message.getBody());
+        } catch (Exception e) {
+            log.warn("Failed to decode sensor update: {}", e.getMessage());
+            return;
+        }
+
+        if (update.getReading() != null) {
+            notifyListeners(update.getReading(), update.getVersion());
+            recordDelay(update.getReading());
+        }
+        advanceVersion(shard, update.getVersion());
+    }
+
+    private void notifyListeners(SensorReading reading, long version) {
+        for (SensorUpdateListener listener : listeners) {
+            try {
+                listener.onSensorUpdate(reading, version);
+            } catch (Exception e) {
+                log.warn("Sensor update listener {} failed for sensor {}: {}",
+                        listener.getClass().getSimpleName(), reading.getSensorId(), e.getMessage());
+            }
+        }
+    }
+
+    // Readings are stamped with the producer's local time, so this assumes both hosts share a time zone
+    private void recordDelay(SensorReading reading) {
+        if (reading.getTimestamp() == null) {
+            return;
+        }
+        long generatedAt = reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long delay = System.currentTimeMillis() - generatedAt;
+        if (delay >= 0) {
+            updateDelay.record(delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Called on the Redis connection's thread for an update the full queue rejected
+    private void dropUpdate() {
+        droppedUpdates.incrementAndGet();
+        if (subscribed) {
+            subscribed = false;
+            log.warn("Sensor update queue is full, dropping updates and resyncing the read models");
+        }
+    }
+
+    private void advanceVersion(RedisShard shard, long candidate) {
+        versions.merge(shard.getName(), candidate, Math::max);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.api.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical computations: while one is in flight, every
+ * caller with the same key gets the same future instead of starting its own.
+ *
+ * A successful result is also kept for a short time-to-live so a burst of
+ * requests that arrive just after it completed still share it. Failures are
+ * never kept. With a zero TTL only in-flight computations are shared. Callers
+ * must treat results as read-only, since they are handed to every waiter.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Completed<V>> completed = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxCompleted;
+
+    public SingleFlight(long ttlNanos, int maxCompleted) {
+        this.ttlNanos = ttlNanos;
+        this.maxCompleted = maxCompleted;
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader) {
+        Completed<V> recent = completed.get(key);
+        if (recent != null) {
+            if (System.nanoTime() - recent.completedAt < ttlNanos) {
+                return CompletableFuture.completedFuture(recent.value);
+            }
+            completed.remove(key, recent);
+        }
+
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            if (error == null && ttlNanos > 0) {
+                remember(key, value);
+            }
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(value);
+            }
+        });
+        return created;
+    }
+
+    int size() {
+        return completed.size();
+    }
+
+    private void remember(K key, V value) {
+        long now = System.nanoTime();
+        if (completed.size() >= maxCompleted) {
+            completed.values().removeIf(entry -> now - entry.completedAt >= ttlNanos);
+            if (completed.size() >= maxCompleted) {
+                completed.clear();
+            }
+        }
+        completed.put(key, new Completed<>(value, now));
+    }
+
+    private record Completed<V>(V value, long completedAt) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.profiling.AggregateEvent;
+import com.example.api.stats.FleetStatistics;
+import com.example.api.stats.StatisticsDimension;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps fleet statistics up to date incrementally from the update channel.
+ *
+ * Each sensor contributes its latest reading once: when a new reading arrives
+ * the previous one is removed from the fleet and group summaries and the new
+ * one added, so a query only reads pre-aggregated sketches and its cost does
+ * not depend on the number of sensors. The state is loaded through the
+ * {@link SensorStateLoader} (Redis or the latest-state topic) once
+ * the update subscription is up, so no update falls between the load and the
+ * stream; until that finishes {@link #isReady()} is false and callers compute
+ * statistics from a fresh read instead. A resubscription (e.g. after updates
+ * were dropped) makes it false again until the reload it starts is done; a
+ * load that started before the resubscription does not count.
+ *
+ * {@link #getRevision()} changes whenever the statistics change other than
+ * through an update (a reload or expired sensors being dropped), so together
+ * with the data version it identifies what a query returns.
+ */
+@Service
+@Slf4j
+public class StatisticsEngine implements SensorUpdateListener {
+
+    @Autowired
+    private SensorStateLoader sensorStateLoader;
+
+    @Value("${sensor.statistics.relative-accuracy}")
+    private double relativeAccuracy;
+
+    @Value("${sensor.redis.ttl}")
+    private Duration readingTtl;
+
+    private final Map<String, TrackedReading> latest = new HashMap<>();
+    private FleetStatistics statistics;
+    private volatile boolean ready;
+    private volatile long revision;
+    // Bumped by every resubscription; a load only makes the engine ready if none happened meanwhile
+    private long loadGeneration;
+
+    @PostConstruct
+    public void init() {
+        statistics = new FleetStatistics(relativeAccuracy);
+    }
+
+    @Override
+    public void onSubscribed() {
+        // Updates may have been missed, so the sketches are behind until the reload is done
+        synchronized (this) {
+            ready = false;
+            loadGeneration++;
+        }
+        CompletableFuture.runAsync(this::load);
+    }
+
+    // Load the current latest readings; updates that arrived meanwhile win over older loaded values
+    public void load() {
+        try {
+            long start = System.currentTimeMillis();
+            long generation;
+            synchronized (this) {
+                generation = loadGeneration;
+            }
+            Collection<SensorReading> readings = sensorStateLoader.loadLatestReadings();
+            readings.forEach(reading -> apply(reading, true));
+            synchronized (this) {
+                if (generation != loadGeneration) {
+                    log.debug("Statistics load superseded by a resubscription");
+                    return;
+                }
+                ready = true;
+                revision++;
+            }
+            log.info("Statistics engine loaded {} sensors in {} ms", readings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error loading statistics engine: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        apply(reading, false);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public synchronized Map<String, Object> query(StatisticsDimension groupBy, double[] percentiles) {
+        AggregateEvent event = new AggregateEvent();
+        event.begin();
+        Map<String, Object> result = statistics.toMap(groupBy, percentiles);
+        commit(event, "statistics", groupBy, 0);
+        return result;
+    }
+
+    // Same statistics for an arbitrary set of readings, aggregated in a single pass
+    public Map<String, Object> aggregate(Collection<SensorReading> readings, StatisticsDimension groupBy,
+                                         double[] percentiles) {
+        AggregateEvent event = new AggregateEvent();
+        event.begin();
+        FleetStatistics aggregated = new FleetStatistics(relativeAccuracy);
+        readings.forEach(aggregated::add);
+        Map<String, Object> result = aggregated.toMap(groupBy, percentiles);
+        commit(event, "statistics-filtered", groupBy, readings.size());
+        return result;
+    }
+
+    private static void commit(AggregateEvent event, String source, StatisticsDimension groupBy, long readings) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setSource(source);
+            event.setGroupBy(groupBy == null ? null : groupBy.getParameterName());
+            event.setReadings(readings);
+            event.commit();
+        }
+    }
+
+    // Forget sensors that have not reported for longer than the Redis TTL
+    @Scheduled(fixedDelayString = "${sensor.statistics.prune-interval}")
+    public synchronized void pruneExpiredSensors() {
+        if (!ready) {
+            // The last load failed (or is still running after a resubscription); try again
+            CompletableFuture.runAsync(this::load);
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - readingTtl.toMillis();
+        Iterator<TrackedReading> iterator = latest.values().iterator();
+        int removed = 0;
+        while (iterator.hasNext()) {
+            TrackedReading tracked = iterator.next();
+            if (tracked.receivedAt < cutoff) {
+                statistics.remove(tracked.reading);
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            revision++;
+            log.debug("Removed {} expired sensors from statistics", removed);
+        }
+    }
+
+    private synchronized void apply(SensorReading reading, boolean fromLoad) {
+        TrackedReading previous = latest.get(reading.getSensorId());
+        if (fromLoad && previous != null && !isOlder(previous.reading, reading)) {
+            return;
+        }
+
+        if (previous != null) {
+            statistics.remove(previous.reading);
+        }
+        statistics.add(reading);
+        // A loaded reading may already be most of a TTL old; it expires when Redis would drop it
+        long receivedAt = fromLoad ? takenAt(reading) : System.currentTimeMillis();
+        latest.put(reading.getSensorId(), new TrackedReading(reading, receivedAt));
+    }
+
+    private static long takenAt(SensorReading reading) {
+        long now = System.currentTimeMillis();
+        if (reading.getTimestamp() == null) {
+            return now;
+        }
+        return Math.min(now, reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private static boolean isOlder(SensorReading current, SensorReading candidate) {
+        return current.getTimestamp() != null && candidate.getTimestamp() != null
+                && current.getTimestamp().isBefore(candidate.getTimestamp());
+    }
+
+    private record TrackedReading(SensorReading reading, long receivedAt) {
+    }
+}
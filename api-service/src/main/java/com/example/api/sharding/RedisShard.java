@@ -0,0 +1,29 @@
+package com.example.api.sharding;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * One Redis node holding part of the sensor state, with the clients for it.
+ * Its name (host:port) is what places it on the hash ring.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RedisShard {
+
+    private final String name;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
+    // Receives the updates the consumer publishes on this node
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
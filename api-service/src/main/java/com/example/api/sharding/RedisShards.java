@@ -0,0 +1,81 @@
+package com.example.api.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where each sensor's state lives. Without sensor.redis.shards everything is
+ * on the single node of spring.data.redis; with it, sensors are spread over
+ * the listed nodes by a {@link ConsistentHashRing} on the sensor id, the same
+ * way the consumer-service writes them.
+ *
+ * A sensor's reading and its entries in the index sets live on its shard, so
+ * lookups across sensors fan out to every shard and merge. Each shard keeps
+ * the data version and pruned version of its own sensors.
+ */
+@Slf4j
+public class RedisShards implements DisposableBean {
+
+    private final List<RedisShard> shards;
+    private final ConsistentHashRing<RedisShard> ring;
+    private final List<? extends DisposableBean> resources;
+
+    // resources are the connections and containers created for the shards, released on shutdown
+    public RedisShards(List<RedisShard> shards, int virtualNodes, List<? extends DisposableBean> resources) {
+        Map<String, RedisShard> byName = new LinkedHashMap<>();
+        for (RedisShard shard : shards) {
+            if (byName.putIfAbsent(shard.getName(), shard) != null) {
+                throw new IllegalArgumentException("Redis shard listed twice: " + shard.getName());
+            }
+        }
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing<>(byName, virtualNodes);
+        this.resources = resources;
+    }
+
+    public List<RedisShard> all() {
+        return shards;
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public RedisShard forSensor(String sensorId) {
+        return shards.size() == 1 ? shards.get(0) : ring.nodeFor(sensorId);
+    }
+
+    public RedisTemplate<String, Object> templateFor(String sensorId) {
+        return forSensor(sensorId).getRedisTemplate();
+    }
+
+    // The sensors on each shard, each list in the given order
+    public Map<RedisShard, List<String>> groupBySensor(Collection<String> sensorIds) {
+        if (shards.size() == 1) {
+            return Map.of(shards.get(0), new ArrayList<>(sensorIds));
+        }
+        Map<RedisShard, List<String>> groups = new LinkedHashMap<>();
+        for (String sensorId : sensorIds) {
+            groups.computeIfAbsent(ring.nodeFor(sensorId), shard -> new ArrayList<>()).add(sensorId);
+        }
+        return groups;
+    }
+
+    @Override
+    public void destroy() {
+        for (DisposableBean resource : resources) {
+            try {
+                resource.destroy();
+            } catch (Exception e) {
+                log.warn("Could not release Redis shard resource: {}", e.getMessage());
+            }
+        }
+    }
+}
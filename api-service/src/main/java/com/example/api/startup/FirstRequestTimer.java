@@ -0,0 +1,97 @@
+package com.example.api.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times the first sensor API request served after startup, the one that
+ * would pay for anything the warm-up left cold. Exported as the
+ * sensor.startup.first.request gauge (-1 until it has been served) and
+ * logged; warm-up requests are not counted. Asynchronous requests are
+ * timed until their response completes.
+ */
+@Component
+@Slf4j
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/sensors/";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile double firstRequestMillis = -1;
+
+    @PostConstruct
+    public void init() {
+        TimeGauge.builder("sensor.startup.first.request", this, TimeUnit.MILLISECONDS, timer -> timer.firstRequestMillis)
+                .description("Latency of the first sensor API request after startup").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return claimed.get()
+                || request.getHeader(StartupWarmup.WARMUP_HEADER) != null
+                || !request.getRequestURI().substring(request.getContextPath().length()).startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!claimed.compareAndSet(false, true)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        String uri = request.getRequestURI();
+        Runnable record = () -> {
+            firstRequestMillis = (System.nanoTime() - start) / 1_000_000.0;
+            log.info("First request {} served in {} ms", uri, Math.round(firstRequestMillis));
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordingListener(record));
+            } else {
+                record.run();
+            }
+        }
+    }
+
+    private record RecordingListener(Runnable record) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
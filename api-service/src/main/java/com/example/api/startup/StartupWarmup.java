@@ -0,0 +1,133 @@
+package com.example.api.startup;
+
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorReadingCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Runs the request hot paths before the instance reports itself ready, so the
+ * first real requests do not pay for class loading, JIT compilation and
+ * connection setup.
+ *
+ * Called by ReadModelBootstrap once the read models are loaded: encodes and
+ * decodes readings the way the Redis codec and the MVC ObjectMapper do, then
+ * sends local GETs round-robin to the warm-up endpoints (most of which go to
+ * Redis) until all requests are sent or the timeout is up. Warm-up requests
+ * carry the {@value #WARMUP_HEADER} header so {@link FirstRequestTimer} skips them.
+ *
+ * Started with sensor.startup.training-run=true (the fast-start build's CDS
+ * training run) only the codecs are run, then the application exits. The
+ * archive gets the Jackson and codec classes, but not the MVC and Lettuce
+ * classes that only the warm-up requests load; the training run has no Redis.
+ */
+@Component
+@Slf4j
+public class StartupWarmup {
+
+    public static final String WARMUP_HEADER = "X-Warmup";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SensorReadingCodec sensorReadingCodec;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${sensor.warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${sensor.warmup.iterations}")
+    private int iterations;
+
+    @Value("${sensor.warmup.requests}")
+    private int requests;
+
+    @Value("${sensor.warmup.endpoints}")
+    private String endpoints;
+
+    @Value("${sensor.warmup.timeout}")
+    private Duration timeout;
+
+    @Value("${sensor.startup.training-run}")
+    private boolean trainingRun;
+
+    // Before application runners, so ReadModelBootstrap never reaches for Redis in the training run
+    @EventListener
+    public void exitAfterTrainingRun(ApplicationStartedEvent event) throws Exception {
+        if (trainingRun) {
+            warmUpJson();
+            log.info("Training run ran {} codec iterations {} ms after start, exiting",
+                    iterations, event.getTimeTaken().toMillis());
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        try {
+            warmUpJson();
+            int sent = warmUpEndpoints(deadline);
+            log.info("Warm-up finished in {} ms ({} codec iterations, {} requests)",
+                    (System.nanoTime() - start) / 1_000_000, iterations, sent);
+        } catch (Exception e) {
+            log.warn("Warm-up stopped early: {}", e.getMessage());
+        }
+    }
+
+    private void warmUpJson() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            SensorReading reading = new SensorReading(String.valueOf(100 + i % 100), "temperature",
+                    20 + i % 10, 1000 + i % 50, "warmup");
+            String json = objectMapper.writeValueAsString(reading);
+            // Stored values are the reading JSON wrapped in a JSON string
+            byte[] stored = objectMapper.writeValueAsBytes(json);
+            sensorReadingCodec.decode(stored);
+            sensorReadingCodec.decodeUpdate((json.substring(0, json.length() - 1) + ",\"version\":" + i + "}")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private int warmUpEndpoints(long deadline) throws Exception {
+        String port = environment.getProperty("local.server.port");
+        String[] paths = StringUtils.commaDelimitedListToStringArray(StringUtils.trimAllWhitespace(endpoints));
+        if (port == null || paths.length == 0) {
+            return 0;
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        int sent = 0;
+        while (sent < requests && System.nanoTime() < deadline) {
+            long remaining = Math.max(1, (deadline - System.nanoTime()) / 1_000_000);
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + paths[sent % paths.length]))
+                    .header(WARMUP_HEADER, "true")
+                    .timeout(Duration.ofMillis(remaining))
+                    .GET()
+                    .build();
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+            sent++;
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.api.stats;
+
+import com.example.api.model.SensorReading;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fleet-wide statistics plus one pre-aggregated group per value of every
+ * {@link StatisticsDimension}, all maintained in the same add/remove call so
+ * queries never have to touch individual readings. Not thread-safe.
+ */
+public class FleetStatistics {
+
+    private final double relativeAccuracy;
+    private final GroupStatistics fleet;
+    private final Map<StatisticsDimension, Map<String, GroupStatistics>> groups = new EnumMap<>(StatisticsDimension.class);
+
+    public FleetStatistics(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.fleet = new GroupStatistics(relativeAccuracy);
+        for (StatisticsDimension dimension : StatisticsDimension.values()) {
+            groups.put(dimension, new HashMap<>());
+        }
+    }
+
+    public void add(SensorReading reading) {
+        fleet.add(reading);
+        for (StatisticsDimension dimension : StatisticsDimension.values()) {
+            groups.get(dimension)
+                    .computeIfAbsent(dimension.valueOf(reading), value -> new GroupStatistics(relativeAccuracy))
+                    .add(reading);
+        }
+    }
+
+    public void remove(SensorReading reading) {
+        fleet.remove(reading);
+        for (StatisticsDimension dimension : StatisticsDimension.values()) {
+            Map<String, GroupStatistics> byValue = groups.get(dimension);
+            String value = dimension.valueOf(reading);
+            GroupStatistics group = byValue.get(value);
+            if (group != null) {
+                group.remove(reading);
+                if (group.getSensorCount() <= 0) {
+                    byValue.remove(value);
+                }
+            }
+        }
+    }
+
+    public GroupStatistics getFleet() {
+        return fleet;
+    }
+
+    public long getSensorCount() {
+        return fleet.getSensorCount();
+    }
+
+    /**
+     * Statistics response. The flat averageTemperature/minTemperature/... fields
+     * are kept for existing dashboard clients.
+     */
+    public Map<String, Object> toMap(StatisticsDimension groupBy, double[] percentiles) {
+        Map<String, Object> stats = new HashMap<>();
+        long sensors = fleet.getSensorCount();
+        stats.put("totalSensors", sensors);
+        stats.put("activeSensors", sensors);
+
+        if (sensors > 0) {
+            Map<String, Object> temperature = fleet.getTemperature().toMap(percentiles);
+            Map<String, Object> pressure = fleet.getPressure().toMap(percentiles);
+            stats.put("averageTemperature", temperature.get("mean"));
+            stats.put("averagePressure", pressure.get("mean"));
+            stats.put("minTemperature", temperature.get("min"));
+            stats.put("maxTemperature", temperature.get("max"));
+            stats.put("temperature", temperature);
+            stats.put("pressure", pressure);
+        }
+
+        if (groupBy != null) {
+            Map<String, Object> grouped = new TreeMap<>();
+            groups.get(groupBy).forEach((value, group) -> grouped.put(value, group.toMap(percentiles)));
+            stats.put("groupBy", groupBy.getParameterName());
+            stats.put("groups", grouped);
+        }
+
+        stats.put("timestamp", System.currentTimeMillis());
+        return stats;
+    }
+}
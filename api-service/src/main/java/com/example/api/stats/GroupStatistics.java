@@ -0,0 +1,55 @@
+package com.example.api.stats;
+
+import com.example.api.model.SensorReading;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Temperature and pressure summaries for one group of sensors.
+ */
+public class GroupStatistics {
+
+    private final MetricSummary temperature;
+    private final MetricSummary pressure;
+
+    public GroupStatistics(double relativeAccuracy) {
+        this.temperature = new MetricSummary(relativeAccuracy);
+        this.pressure = new MetricSummary(relativeAccuracy);
+    }
+
+    public void add(SensorReading reading) {
+        temperature.add(reading.getTemperature());
+        pressure.add(reading.getPressure());
+    }
+
+    public void remove(SensorReading reading) {
+        temperature.remove(reading.getTemperature());
+        pressure.remove(reading.getPressure());
+    }
+
+    public void merge(GroupStatistics other) {
+        temperature.merge(other.temperature);
+        pressure.merge(other.pressure);
+    }
+
+    public long getSensorCount() {
+        return temperature.getCount();
+    }
+
+    public MetricSummary getTemperature() {
+        return temperature;
+    }
+
+    public MetricSummary getPressure() {
+        return pressure;
+    }
+
+    public Map<String, Object> toMap(double[] percentiles) {
+        Map<String, Object> group = new LinkedHashMap<>();
+        group.put("activeSensors", getSensorCount());
+        group.put("temperature", temperature.toMap(percentiles));
+        group.put("pressure", pressure.toMap(percentiles));
+        return group;
+    }
+}
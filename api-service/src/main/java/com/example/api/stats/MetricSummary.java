@@ -0,0 +1,91 @@
+package com.example.api.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count, mean and standard deviation from running moments, plus min, max and
+ * percentiles from a {@link QuantileSketch}. Values can be added and removed.
+ */
+public class MetricSummary {
+
+    private final QuantileSketch sketch;
+    private long count;
+    private double sum;
+    private double sumOfSquares;
+
+    public MetricSummary(double relativeAccuracy) {
+        this.sketch = new QuantileSketch(relativeAccuracy);
+    }
+
+    public void add(double value) {
+        count++;
+        sum += value;
+        sumOfSquares += value * value;
+        sketch.add(value);
+    }
+
+    public void remove(double value) {
+        count--;
+        sum -= value;
+        sumOfSquares -= value * value;
+        sketch.remove(value);
+    }
+
+    public void merge(MetricSummary other) {
+        count += other.count;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        sketch.merge(other.sketch);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public double getStandardDeviation() {
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = getMean();
+        return Math.sqrt(Math.max(0.0, sumOfSquares / count - mean * mean));
+    }
+
+    // min, max and the requested percentiles (0-100) from one pass over the sketch
+    public Map<String, Object> toMap(double[] percentiles) {
+        double[] qs = new double[percentiles.length + 2];
+        qs[0] = 0.0;
+        qs[1] = 1.0;
+        for (int i = 0; i < percentiles.length; i++) {
+            qs[i + 2] = percentiles[i] / 100.0;
+        }
+        double[] estimates = sketch.quantiles(qs);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("mean", round(getMean()));
+        summary.put("stddev", round(getStandardDeviation()));
+        summary.put("min", round(estimates[0]));
+        summary.put("max", round(estimates[1]));
+        for (int i = 0; i < percentiles.length; i++) {
+            summary.put(percentileName(percentiles[i]), round(estimates[i + 2]));
+        }
+        return summary;
+    }
+
+    static String percentileName(double percentile) {
+        String value = percentile == Math.rint(percentile)
+                ? String.valueOf((long) percentile)
+                : String.valueOf(percentile).replace('.', '_');
+        return "p" + value;
+    }
+
+    // Round to 2 decimal places
+    static double round(double value) {
+        return Double.isNaN(value) ? 0.0 : Math.round(value * 100.0) / 100.0;
+    }
+}
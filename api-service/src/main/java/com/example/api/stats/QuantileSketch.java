@@ -0,0 +1,211 @@
+package com.example.api.stats;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantees (DDSketch-style).
+ *
+ * Values are mapped to logarithmic buckets, so every quantile estimate is
+ * within relativeAccuracy of a true value, whatever the distribution. Unlike
+ * t-digest or KLL the buckets are plain counters, which means a value can be
+ * removed again; that is what lets the statistics engine track each sensor's
+ * latest value instead of every value ever seen.
+ *
+ * Buckets are kept sparse in sorted primitive arrays so a group holding a
+ * single sensor costs a few bytes. Not thread-safe.
+ */
+public class QuantileSketch {
+
+    // Values closer to zero than this are counted as zero
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private final BucketStore positive = new BucketStore();
+    private final BucketStore negative = new BucketStore();
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("relativeAccuracy must be between 0 and 1");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        update(value, 1);
+    }
+
+    public void remove(double value) {
+        update(value, -1);
+    }
+
+    // Add every value of another sketch built with the same accuracy
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracy");
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public double quantile(double q) {
+        return quantiles(new double[]{q})[0];
+    }
+
+    // Estimates for several quantiles (each in [0, 1]). Quantiles up to the median are found
+    // walking up from the smallest bucket, the rest walking down from the largest, so a query
+    // for e.g. min, p50, p99 and max never visits more than about half of the buckets.
+    public double[] quantiles(double[] qs) {
+        double[] result = new double[qs.length];
+        if (count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+
+        Integer[] order = new Integer[qs.length];
+        for (int i = 0; i < qs.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(qs[a], qs[b]));
+
+        int split = 0;
+        while (split < order.length && rank(qs[order[split]]) <= (count - 1) / 2) {
+            split++;
+        }
+
+        // Ascending: bucket k covers ranks [seen, seen + count(k))
+        int next = 0;
+        long seen = 0;
+        for (int k = 0; k < bucketCount() && next < split; k++) {
+            seen += countAt(k);
+            while (next < split && seen > rank(qs[order[next]])) {
+                result[order[next++]] = valueAt(k);
+            }
+        }
+
+        // Descending from the top for the upper quantiles
+        next = order.length - 1;
+        long above = 0;
+        for (int k = bucketCount() - 1; k >= 0 && next >= split; k--) {
+            above += countAt(k);
+            while (next >= split && count - above <= rank(qs[order[next]])) {
+                result[order[next--]] = valueAt(k);
+            }
+        }
+        return result;
+    }
+
+    // Buckets in ascending value order: negative store (reversed), the zero bucket, positive store
+    private int bucketCount() {
+        return negative.size + 1 + positive.size;
+    }
+
+    private long countAt(int k) {
+        if (k < negative.size) {
+            return negative.counts[negative.size - 1 - k];
+        }
+        if (k == negative.size) {
+            return zeroCount;
+        }
+        return positive.counts[k - negative.size - 1];
+    }
+
+    private double valueAt(int k) {
+        if (k < negative.size) {
+            return -valueOf(negative.indexes[negative.size - 1 - k]);
+        }
+        if (k == negative.size) {
+            return 0.0;
+        }
+        return valueOf(positive.indexes[k - negative.size - 1]);
+    }
+
+    private void update(double value, long delta) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (value > MIN_INDEXABLE) {
+            positive.add(indexOf(value), delta);
+        } else if (value < -MIN_INDEXABLE) {
+            negative.add(indexOf(-value), delta);
+        } else {
+            zeroCount += delta;
+        }
+        count += delta;
+    }
+
+    private long rank(double q) {
+        double clamped = Math.max(0.0, Math.min(1.0, q));
+        return (long) (clamped * (count - 1));
+    }
+
+    private int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double valueOf(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    // Sorted bucket index -> count pairs; empty buckets are dropped
+    private static final class BucketStore {
+        private int[] indexes = new int[4];
+        private long[] counts = new long[4];
+        private int size;
+
+        void add(int index, long delta) {
+            int pos = Arrays.binarySearch(indexes, 0, size, index);
+            if (pos >= 0) {
+                counts[pos] += delta;
+                if (counts[pos] <= 0) {
+                    removeAt(pos);
+                }
+                return;
+            }
+            if (delta <= 0) {
+                return;
+            }
+            insertAt(-pos - 1, index, delta);
+        }
+
+        void merge(BucketStore other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.indexes[i], other.counts[i]);
+            }
+        }
+
+        private void insertAt(int pos, int index, long count) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            System.arraycopy(indexes, pos, indexes, pos + 1, size - pos);
+            System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+            indexes[pos] = index;
+            counts[pos] = count;
+            size++;
+        }
+
+        private void removeAt(int pos) {
+            System.arraycopy(indexes, pos + 1, indexes, pos, size - pos - 1);
+            System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.api.stats;
+
+import com.example.api.model.SensorReading;
+
+import java.util.function.Function;
+
+/**
+ * Reading attributes the statistics can be grouped by.
+ */
+public enum StatisticsDimension {
+    LOCATION("location", SensorReading::getLocation),
+    SENSOR_TYPE("sensorType", SensorReading::getSensorType);
+
+    private static final String UNKNOWN = "unknown";
+
+    private final String parameterName;
+    private final Function<SensorReading, String> extractor;
+
+    StatisticsDimension(String parameterName, Function<SensorReading, String> extractor) {
+        this.parameterName = parameterName;
+        this.extractor = extractor;
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    public String valueOf(SensorReading reading) {
+        String value = extractor.apply(reading);
+        return value == null || value.isEmpty() ? UNKNOWN : value;
+    }
+
+    // Accepts the request parameter name, e.g. "location" or "sensorType"
+    public static StatisticsDimension fromParameter(String name) {
+        for (StatisticsDimension dimension : values()) {
+            if (dimension.parameterName.equalsIgnoreCase(name)) {
+                return dimension;
+            }
+        }
+        throw new IllegalArgumentException("Unknown groupBy dimension: " + name);
+    }
+}
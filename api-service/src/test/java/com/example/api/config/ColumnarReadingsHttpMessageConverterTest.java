@@ -0,0 +1,55 @@
+package com.example.api.config;
+
+import com.example.api.model.SensorReading;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the columnar readings format
+ * readings become one array per field with timestamps read in the server's zone, and only reading collections are written
+ */
+class ColumnarReadingsHttpMessageConverterTest {
+
+    private final ColumnarReadingsHttpMessageConverter converter = new ColumnarReadingsHttpMessageConverter();
+
+    @Test
+    void writes_readings_as_parallel_arrays() throws Exception {
+        LocalDateTime noon = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<SensorReading> readings = List.of(
+            new SensorReading("101", "TEMP_PRESSURE", 25.5, 1013.25, noon, "Location-1"),
+            new SensorReading("102", "TEMP_PRESSURE", 19.0, 990.0, null, "Location-2"));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(readings, new ParameterizedTypeReference<List<SensorReading>>() {}.getType(),
+            ColumnarReadingsHttpMessageConverter.COLUMNAR_JSON, output);
+
+        assertEquals("{\"count\":2,\"sensorId\":[\"101\",\"102\"],"
+                + "\"sensorType\":[\"TEMP_PRESSURE\",\"TEMP_PRESSURE\"],"
+                + "\"location\":[\"Location-1\",\"Location-2\"],"
+                + "\"temperature\":[25.5,19.0],\"pressure\":[1013.25,990.0],"
+                + "\"timestamp\":[" + noon.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + ",null]}",
+            output.getBodyAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void only_writes_reading_collections() {
+        MediaType columnar = ColumnarReadingsHttpMessageConverter.COLUMNAR_JSON;
+
+        assertTrue(converter.canWrite(new ParameterizedTypeReference<Map<String, SensorReading>>() {}.getType(),
+            Map.class, columnar));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<Map<String, Object>>() {}.getType(),
+            Map.class, columnar));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<SensorReading>>() {}.getType(),
+            List.class, MediaType.APPLICATION_JSON));
+    }
+}
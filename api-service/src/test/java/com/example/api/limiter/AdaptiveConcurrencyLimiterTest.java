@@ -0,0 +1,85 @@
+package com.example.api.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the adaptive concurrency limit
+ * requests over the limit are shed, bulk requests leave headroom, rising latency shrinks the limit
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void requests_over_the_limit_are_rejected() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.0);
+
+        assertTrue(limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(false));
+        assertFalse(limiter.tryAcquire(false));
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(limiter.tryAcquire(false));
+    }
+
+    @Test
+    void bulk_requests_leave_headroom_for_cheap_ones() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 10, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(true));
+        }
+        assertFalse(limiter.tryAcquire(true));
+        assertTrue(limiter.tryAcquire(false));
+    }
+
+    @Test
+    void rising_latency_shrinks_the_limit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 1000, 1.0);
+        saturate(limiter, 200, TimeUnit.MILLISECONDS.toNanos(5));
+        int healthyLimit = limiter.getLimit();
+
+        saturate(limiter, 1, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertTrue(limiter.getLimit() < healthyLimit);
+        assertTrue(limiter.getLimit() >= 10);
+    }
+
+    @Test
+    void steady_latency_under_load_grows_the_limit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 10, 1000, 1.0);
+
+        saturate(limiter, 50, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertTrue(limiter.getLimit() > 20);
+    }
+
+    @Test
+    void idle_service_keeps_its_limit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 10, 1000, 1.0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(false));
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+
+        assertEquals(100, limiter.getLimit());
+    }
+
+    // Completes rounds of requests that each fill the current limit
+    private static void saturate(AdaptiveConcurrencyLimiter limiter, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (limiter.tryAcquire(false)) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+    }
+}
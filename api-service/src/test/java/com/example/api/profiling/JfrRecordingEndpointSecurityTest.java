@@ -0,0 +1,104 @@
+package com.example.api.profiling;
+
+import com.example.api.config.ProfilingSecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.EndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.endpoint.web.WebEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.health.HealthEndpointAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementContextAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.web.servlet.ServletManagementContextAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * tests for who may use /actuator/jfr
+ * every operation needs the profiler's credentials; the rest of the actuator is left alone
+ */
+@SpringBootTest(properties = {
+        "spring.application.name=api-service",
+        "management.endpoints.web.exposure.include=health,jfr",
+        "sensor.profiling.settings=default",
+        "sensor.profiling.max-duration=5m",
+        "sensor.profiling.max-size=10MB",
+        "sensor.profiling.dir=${java.io.tmpdir}/sensor-profiling-test",
+        "spring.security.user.name=profiler",
+        "spring.security.user.password=secret",
+        "spring.security.user.roles=PROFILER"})
+@AutoConfigureMockMvc
+class JfrRecordingEndpointSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void operations_without_credentials_are_unauthorized() throws Exception {
+        mockMvc.perform(get("/actuator/jfr")).andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/actuator/jfr").contentType(MediaType.APPLICATION_JSON).content("{\"duration\":\"1s\"}"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(delete("/actuator/jfr")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void wrong_password_is_unauthorized() throws Exception {
+        mockMvc.perform(delete("/actuator/jfr").header(HttpHeaders.AUTHORIZATION, basic("profiler", "wrong")))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void profiler_may_use_the_endpoint() throws Exception {
+        mockMvc.perform(delete("/actuator/jfr").header(HttpHeaders.AUTHORIZATION, basic("profiler", "secret")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("NONE"));
+        mockMvc.perform(get("/actuator/jfr").header(HttpHeaders.AUTHORIZATION, basic("profiler", "secret")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void other_endpoints_need_no_credentials() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private static String basic(String user, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            PropertyPlaceholderAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            SecurityAutoConfiguration.class,
+            SecurityFilterAutoConfiguration.class,
+            UserDetailsServiceAutoConfiguration.class,
+            EndpointAutoConfiguration.class,
+            WebEndpointAutoConfiguration.class,
+            ManagementContextAutoConfiguration.class,
+            ServletManagementContextAutoConfiguration.class,
+            HealthEndpointAutoConfiguration.class})
+    @Import({JfrRecordingEndpoint.class, ProfilingSecurityConfig.class})
+    static class ProfilingApplication {
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.api.profiling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the JFR recording endpoint
+ * a recording is capped at max-duration, can only be downloaded once it has ended, and a new one replaces the old file
+ */
+class JfrRecordingEndpointTest {
+
+    @TempDir
+    Path dir;
+
+    private JfrRecordingEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new JfrRecordingEndpoint();
+        ReflectionTestUtils.setField(endpoint, "applicationName", "api-service");
+        ReflectionTestUtils.setField(endpoint, "settings", "default");
+        ReflectionTestUtils.setField(endpoint, "maxDuration", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(endpoint, "maxSize", DataSize.ofMegabytes(10));
+        ReflectionTestUtils.setField(endpoint, "dir", dir);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        endpoint.destroy();
+    }
+
+    @Test
+    void nothing_to_download_before_a_recording() {
+        assertEquals(Map.of("state", "NONE"), endpoint.stop());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download().getStatus());
+    }
+
+    @Test
+    void duration_is_capped_at_max_duration() throws Exception {
+        assertEquals(Duration.ofMinutes(5).toString(), endpoint.start(Duration.ofHours(1)).get("duration"));
+        endpoint.stop();
+
+        assertEquals(Duration.ofMinutes(5).toString(), endpoint.start(null).get("duration"));
+        endpoint.stop();
+
+        assertEquals(Duration.ofSeconds(30).toString(), endpoint.start(Duration.ofSeconds(30)).get("duration"));
+    }
+
+    @Test
+    void recording_is_downloadable_only_after_it_stops() throws Exception {
+        Map<String, Object> started = endpoint.start(Duration.ofSeconds(30));
+        assertEquals("RUNNING", started.get("state"));
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download().getStatus());
+
+        // a recording with a destination is written out and closed when it stops
+        assertEquals("CLOSED", endpoint.stop().get("state"));
+
+        WebEndpointResponse<Resource> download = endpoint.download();
+        assertEquals(WebEndpointResponse.STATUS_OK, download.getStatus());
+        assertEquals(started.get("file"), download.getBody().getFilename());
+        assertTrue(download.getBody().contentLength() > 0);
+    }
+
+    @Test
+    void start_while_running_keeps_the_running_recording() throws Exception {
+        Map<String, Object> first = endpoint.start(Duration.ofSeconds(30));
+
+        Map<String, Object> second = endpoint.start(Duration.ofSeconds(60));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void new_recording_replaces_the_previous_file() throws Exception {
+        endpoint.start(Duration.ofSeconds(30));
+        endpoint.stop();
+        Path previous = dir.resolve((String) endpoint.stop().get("file"));
+        assertTrue(Files.exists(previous));
+
+        Thread.sleep(5);
+        endpoint.start(Duration.ofSeconds(30));
+
+        assertFalse(Files.exists(previous));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.api.repository;
+
+import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for decoding raw redis values
+ * the consumer stores readings as a quoted json string, but plain json should work too
+ */
+class SensorReadingCodecTest {
+
+    private final SensorReadingCodec codec = new SensorReadingCodec();
+
+    @Test
+    void decodes_quoted_json_from_consumer() throws Exception {
+        String stored = "\"{\\\"sensorId\\\":\\\"101\\\",\\\"sensorType\\\":\\\"TEMP_PRESSURE\\\","
+                + "\\\"temperature\\\":25.5,\\\"pressure\\\":1013.25,"
+                + "\\\"timestamp\\\":[2024,1,1,12,0,0],\\\"location\\\":\\\"Location-1\\\"}\"";
+
+        SensorReading reading = codec.decode(stored.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("101", reading.getSensorId());
+        assertEquals(25.5, reading.getTemperature());
+        assertEquals("Location-1", reading.getLocation());
+    }
+
+    @Test
+    void decodes_plain_json() throws Exception {
+        String stored = "{\"@class\":\"com.example.api.model.SensorReading\",\"sensorId\":\"102\","
+                + "\"temperature\":19.0,\"pressure\":990.0}";
+
+        SensorReading reading = codec.decode(stored.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("102", reading.getSensorId());
+        assertEquals(990.0, reading.getPressure());
+    }
+
+    @Test
+    void decodes_update_with_version() throws Exception {
+        String message = "{\"sensorId\":\"103\",\"temperature\":21.0,\"pressure\":1000.0,\"version\":42}";
+
+        SensorUpdate update = codec.decodeUpdate(message.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("103", update.getReading().getSensorId());
+        assertEquals(42, update.getVersion());
+    }
+
+    @Test
+    void decodes_version_only_update() throws Exception {
+        SensorUpdate update = codec.decodeUpdate("{\"version\":43}".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(update.getReading());
+        assertEquals(43, update.getVersion());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.api.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for merging what the shards return
+ * sorted id pages merge into one sorted page, scored entries merge by score then id
+ */
+class SensorRedisRepositoryTest {
+
+    @Test
+    void merges_sorted_pages_and_drops_duplicates() {
+        // "104" is still indexed on its old shard after a reshard
+        List<List<String>> pages = List.of(List.of("101", "104", "107"), List.of("102", "104", "105"), List.of());
+
+        assertEquals(List.of("101", "102", "104", "105"), SensorRedisRepository.mergeSorted(pages, 4));
+    }
+
+    @Test
+    void single_shard_page_is_only_cut_to_the_limit() {
+        List<String> page = List.of("101", "102", "103");
+
+        assertEquals(List.of("101", "102"), SensorRedisRepository.mergeSorted(List.of(page), 2));
+        assertSame(page, SensorRedisRepository.mergeSorted(List.of(page), 3));
+    }
+
+    @Test
+    void merges_by_score_with_ties_in_id_order() {
+        List<List<ZSetOperations.TypedTuple<String>>> entries = List.of(
+                List.of(entry("103", 20.0), entry("101", 25.0)),
+                List.of(entry("102", 20.0), entry("104", 30.0)));
+
+        assertEquals(List.of("102", "103", "101", "104"), SensorRedisRepository.mergeByScore(entries, 0, 10));
+    }
+
+    @Test
+    void merge_by_score_skips_offset_after_merging() {
+        // every shard returns its first offset + limit entries; the page is cut from the merge
+        List<List<ZSetOperations.TypedTuple<String>>> entries = List.of(
+                List.of(entry("101", 1.0), entry("103", 3.0), entry("105", 5.0)),
+                List.of(entry("102", 2.0), entry("104", 4.0), entry("106", 6.0)));
+
+        assertEquals(List.of("103", "104"), SensorRedisRepository.mergeByScore(entries, 2, 2));
+        assertEquals(List.of(), SensorRedisRepository.mergeByScore(entries, 6, 2));
+    }
+
+    @Test
+    void merge_by_score_counts_a_duplicate_once() {
+        List<List<ZSetOperations.TypedTuple<String>>> entries = List.of(
+                List.of(entry("101", 1.0), entry("102", 2.0)),
+                List.of(entry("101", 1.5), entry("103", 3.0)));
+
+        assertEquals(List.of("102", "103"), SensorRedisRepository.mergeByScore(entries, 1, 5));
+    }
+
+    private static ZSetOperations.TypedTuple<String> entry(String sensorId, double score) {
+        return new DefaultTypedTuple<>(sensorId, score);
+    }
+}
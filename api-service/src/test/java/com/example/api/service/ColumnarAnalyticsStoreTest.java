@@ -0,0 +1,140 @@
+package com.example.api.service;
+
+import com.example.api.analytics.AnalyticsGroupBy;
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.model.SensorMetric;
+import com.example.api.model.SensorReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the columnar analytics store
+ * filters and groups span chunks, time buckets line up, old chunks are dropped
+ */
+class ColumnarAnalyticsStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withSecond(30).withNano(0);
+
+    private ColumnarAnalyticsStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarAnalyticsStore();
+        ReflectionTestUtils.setField(store, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "retention", Duration.ofHours(1));
+        // small chunks so queries cross chunk boundaries
+        ReflectionTestUtils.setField(store, "chunkSize", 2);
+        ReflectionTestUtils.setField(store, "maxRows", 1000L);
+        ReflectionTestUtils.setField(store, "parallelism", 2);
+        store.init();
+
+        store.append(reading("101", "Location-1", "TEMP", 20.0, 1000.0, NOW.minusMinutes(2)));
+        store.append(reading("102", "Location-2", "TEMP", 30.0, 1010.0, NOW.minusMinutes(2)));
+        store.append(reading("101", "Location-1", "TEMP", 22.0, 1002.0, NOW.minusMinutes(1)));
+        store.append(reading("103", "Location-1", "HUMIDITY", 40.0, 990.0, NOW.minusMinutes(1)));
+        store.append(reading("102", "Location-2", "TEMP", 32.0, 1012.0, NOW));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    void aggregates_all_readings_in_window() {
+        Map<String, Object> result = store.query(query(Duration.ofMinutes(10)));
+
+        assertEquals(5L, result.get("matched"));
+        Map<String, Object> group = groups(result).get(0);
+        assertEquals(5L, group.get("count"));
+        assertEquals(Map.of("avg", 28.8, "min", 20.0, "max", 40.0), group.get("temperature"));
+    }
+
+    @Test
+    void groups_by_location_with_filters() {
+        AnalyticsQuery query = query(Duration.ofMinutes(10));
+        query.setGroupBy(AnalyticsGroupBy.LOCATION);
+        query.setSensorType("TEMP");
+
+        List<Map<String, Object>> groups = groups(store.query(query));
+
+        assertEquals(2, groups.size());
+        assertEquals("Location-1", groups.get(0).get("key"));
+        assertEquals(2L, groups.get(0).get("count"));
+        assertEquals("Location-2", groups.get(1).get("key"));
+        assertEquals(Map.of("avg", 1011.0, "min", 1010.0, "max", 1012.0), groups.get(1).get("pressure"));
+    }
+
+    @Test
+    void filters_by_value_range_and_unknown_values() {
+        AnalyticsQuery query = query(Duration.ofMinutes(10));
+        query.setMetric(SensorMetric.TEMPERATURE);
+        query.setMin(25.0);
+        assertEquals(3L, store.query(query).get("matched"));
+
+        query = query(Duration.ofMinutes(10));
+        query.setLocation("Location-9");
+        assertEquals(0L, store.query(query).get("matched"));
+        assertTrue(groups(store.query(query)).isEmpty());
+    }
+
+    @Test
+    void groups_by_time_bucket() {
+        AnalyticsQuery query = query(Duration.ofMinutes(10));
+        query.setGroupBy(AnalyticsGroupBy.TIME);
+        query.setIntervalMillis(Duration.ofMinutes(1).toMillis());
+
+        List<Map<String, Object>> groups = groups(store.query(query));
+
+        assertEquals(3, groups.size());
+        assertEquals(NOW.minusMinutes(2).withSecond(0), groups.get(0).get("key"));
+        assertEquals(2L, groups.get(1).get("count"));
+        assertEquals(NOW.withSecond(0), groups.get(2).get("key"));
+    }
+
+    @Test
+    void window_excludes_older_readings() {
+        assertEquals(1L, store.query(query(Duration.ofSeconds(20))).get("matched"));
+    }
+
+    @Test
+    void drops_oldest_chunks_beyond_row_budget() {
+        ReflectionTestUtils.setField(store, "maxRows", 4L);
+
+        // fills the third chunk, then starts a fourth; only the newest full chunk fits beside it
+        store.append(reading("104", "Location-3", "TEMP", 10.0, 1000.0, NOW));
+        store.append(reading("105", "Location-3", "TEMP", 12.0, 1000.0, NOW));
+
+        assertEquals(3, store.size());
+        assertEquals(3L, store.query(query(Duration.ofMinutes(10))).get("matched"));
+    }
+
+    private static AnalyticsQuery query(Duration window) {
+        AnalyticsQuery query = new AnalyticsQuery();
+        long now = NOW.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        query.setFromMillis(now - window.toMillis());
+        query.setToMillis(now + 1);
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> groups(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("groups");
+    }
+
+    private static SensorReading reading(String id, String location, String type, double temperature, double pressure,
+                                         LocalDateTime timestamp) {
+        return new SensorReading(id, type, temperature, pressure, timestamp, location);
+    }
+}
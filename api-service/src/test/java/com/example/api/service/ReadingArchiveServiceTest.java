@@ -0,0 +1,226 @@
+package com.example.api.service;
+
+import com.example.api.analytics.AnalyticsGroupBy;
+import com.example.api.analytics.AnalyticsQuery;
+import com.example.api.archive.SegmentFormat;
+import com.example.api.model.SensorMetric;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for queries over archived segments
+ * segments are written in the consumer's layout; hours and zone maps skip segments, groups merge across segments
+ */
+class ReadingArchiveServiceTest {
+
+    private static final LocalDateTime HOUR = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @TempDir
+    Path archiveDir;
+
+    private ReadingArchiveService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new ReadingArchiveService();
+        ReflectionTestUtils.setField(service, "archiveDir", archiveDir.toString());
+        ReflectionTestUtils.setField(service, "maxOpenSegments", 10);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        service.init();
+
+        writeSegment(HOUR, "1-1", List.of(
+                row(HOUR.plusMinutes(5), 20.0, 1000.0, "Location-1", "TEMP"),
+                row(HOUR.plusMinutes(10), 22.0, 1002.0, "Location-2", "TEMP")));
+        writeSegment(HOUR, "2-1", List.of(
+                row(HOUR.plusMinutes(50), 40.0, 990.0, "Location-1", "HUMIDITY")));
+        writeSegment(HOUR.plusHours(1), "3-1", List.of(
+                row(HOUR.plusMinutes(70), 30.0, 1010.0, "Location-2", "TEMP")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void aggregates_across_segments_and_hours() {
+        Map<String, Object> result = service.query(query(HOUR, HOUR.plusHours(2)));
+
+        assertEquals(4L, result.get("matched"));
+        assertEquals(3, result.get("segmentsScanned"));
+        assertEquals(Map.of("avg", 28.0, "min", 20.0, "max", 40.0), groups(result).get(0).get("temperature"));
+    }
+
+    @Test
+    void groups_by_location_across_segment_dictionaries() {
+        AnalyticsQuery query = query(HOUR, HOUR.plusHours(2));
+        query.setGroupBy(AnalyticsGroupBy.LOCATION);
+
+        List<Map<String, Object>> groups = groups(service.query(query));
+
+        assertEquals("Location-1", groups.get(0).get("key"));
+        assertEquals(2L, groups.get(0).get("count"));
+        assertEquals("Location-2", groups.get(1).get("key"));
+        assertEquals(Map.of("avg", 1006.0, "min", 1002.0, "max", 1010.0), groups.get(1).get("pressure"));
+    }
+
+    @Test
+    void zone_maps_skip_segments() {
+        AnalyticsQuery query = query(HOUR, HOUR.plusHours(2));
+        query.setMetric(SensorMetric.TEMPERATURE);
+        query.setMin(35.0);
+        Map<String, Object> result = service.query(query);
+        assertEquals(1L, result.get("matched"));
+        assertEquals(2, result.get("segmentsSkipped"));
+
+        query = query(HOUR, HOUR.plusHours(2));
+        query.setSensorType("HUMIDITY");
+        assertEquals(2, service.query(query).get("segmentsSkipped"));
+    }
+
+    @Test
+    void lists_only_hours_in_range() {
+        Map<String, Object> result = service.query(query(HOUR.plusHours(1), HOUR.plusHours(2)));
+
+        assertEquals(1L, result.get("matched"));
+        assertEquals(1, result.get("segmentsScanned"));
+        assertEquals(0, result.get("segmentsSkipped"));
+    }
+
+    @Test
+    void groups_by_time_bucket() {
+        AnalyticsQuery query = query(HOUR, HOUR.plusHours(2));
+        query.setGroupBy(AnalyticsGroupBy.TIME);
+        query.setIntervalMillis(Duration.ofMinutes(30).toMillis());
+
+        List<Map<String, Object>> groups = groups(service.query(query));
+
+        assertEquals(3, groups.size());
+        assertEquals(HOUR, groups.get(0).get("key"));
+        assertEquals(HOUR.plusMinutes(30), groups.get(1).get("key"));
+        assertEquals(HOUR.plusHours(1), groups.get(2).get("key"));
+    }
+
+    private static AnalyticsQuery query(LocalDateTime from, LocalDateTime to) {
+        AnalyticsQuery query = new AnalyticsQuery();
+        query.setFromMillis(millis(from));
+        query.setToMillis(millis(to));
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> groups(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("groups");
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Row(long timestamp, double temperature, double pressure, String location, String sensorType) {
+    }
+
+    private static Row row(LocalDateTime time, double temperature, double pressure, String location, String sensorType) {
+        return new Row(millis(time), temperature, pressure, location, sensorType);
+    }
+
+    // Same layout the consumer's SegmentWriter produces; rows must be in time order
+    private void writeSegment(LocalDateTime hour, String name, List<Row> rows) throws IOException {
+        List<String> sensorIds = List.of("101");
+        List<String> locations = rows.stream().map(Row::location).distinct().toList();
+        List<String> sensorTypes = rows.stream().map(Row::sensorType).distinct().toList();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SegmentFormat.MAGIC);
+        out.writeShort(SegmentFormat.VERSION);
+        out.writeInt(rows.size());
+        out.writeLong(rows.get(0).timestamp());
+        out.writeLong(rows.get(rows.size() - 1).timestamp());
+        out.writeDouble(rows.stream().mapToDouble(Row::temperature).min().getAsDouble());
+        out.writeDouble(rows.stream().mapToDouble(Row::temperature).max().getAsDouble());
+        out.writeDouble(rows.stream().mapToDouble(Row::pressure).min().getAsDouble());
+        out.writeDouble(rows.stream().mapToDouble(Row::pressure).max().getAsDouble());
+        for (List<String> dictionary : List.of(sensorIds, locations, sensorTypes)) {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary) {
+                out.writeShort(value.length());
+                out.write(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        byte[][] columns = new byte[SegmentFormat.COLUMN_COUNT][];
+        columns[0] = compress(column -> {
+            long previous = 0;
+            for (Row row : rows) {
+                column.writeLong(row.timestamp() - previous);
+                previous = row.timestamp();
+            }
+        });
+        columns[1] = compress(column -> {
+            for (Row row : rows) {
+                column.writeDouble(row.temperature());
+            }
+        });
+        columns[2] = compress(column -> {
+            for (Row row : rows) {
+                column.writeDouble(row.pressure());
+            }
+        });
+        columns[3] = compress(column -> {
+            for (Row row : rows) {
+                column.writeInt(0);
+            }
+        });
+        columns[4] = compress(column -> {
+            for (Row row : rows) {
+                column.writeInt(locations.indexOf(row.location()));
+            }
+        });
+        columns[5] = compress(column -> {
+            for (Row row : rows) {
+                column.writeInt(sensorTypes.indexOf(row.sensorType()));
+            }
+        });
+        for (byte[] column : columns) {
+            out.writeInt(column.length);
+        }
+        for (byte[] column : columns) {
+            out.write(column);
+        }
+
+        Path partition = archiveDir.resolve(SegmentFormat.partition(millis(hour)));
+        Files.createDirectories(partition);
+        Files.write(partition.resolve(name + SegmentFormat.EXTENSION), bytes.toByteArray());
+    }
+
+    private static byte[] compress(ColumnWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writer.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface ColumnWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
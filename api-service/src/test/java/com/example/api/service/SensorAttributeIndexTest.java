@@ -0,0 +1,102 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorReading;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests for the location/type index
+ * filters intersect, updates move sensors between values, expired sensors drop out
+ */
+@ExtendWith(MockitoExtension.class)
+class SensorAttributeIndexTest {
+
+    @Mock
+    private SensorStateLoader sensorStateLoader;
+
+    @InjectMocks
+    private SensorAttributeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "readingTtl", Duration.ofHours(1));
+
+        // built from the latest state on first use
+        when(sensorStateLoader.loadLatestReadings()).thenReturn(List.of(
+            reading("101", "Location-1", "TEMP_PRESSURE"),
+            reading("102", "Location-2", "TEMP_PRESSURE")));
+        index.load();
+        index.onSensorUpdate(reading("103", "Location-1", "HUMIDITY"));
+    }
+
+    @Test
+    void intersects_location_and_type() {
+        assertEquals(List.of("101", "103"), index.findSensorIds(new SensorFilter("Location-1", null)).get());
+        assertEquals(List.of("101", "102"), index.findSensorIds(new SensorFilter(null, "TEMP_PRESSURE")).get());
+        assertEquals(List.of("103"), index.findSensorIds(new SensorFilter("Location-1", "HUMIDITY")).get());
+        assertEquals(List.of(), index.findSensorIds(new SensorFilter("Location-3", null)).get());
+    }
+
+    @Test
+    void update_moves_sensor_to_new_location() {
+        index.onSensorUpdate(reading("101", "Location-2", "TEMP_PRESSURE"));
+
+        assertEquals(List.of("103"), index.findSensorIds(new SensorFilter("Location-1", null)).get());
+        assertEquals(List.of("101", "102"), index.findSensorIds(new SensorFilter("Location-2", null)).get());
+    }
+
+    @Test
+    void expired_sensors_are_removed_and_ordinals_reused() {
+        ReflectionTestUtils.setField(index, "readingTtl", Duration.ofMillis(-1000));
+        index.pruneExpiredSensors();
+        assertEquals(0, index.size());
+
+        index.onSensorUpdate(reading("104", "Location-1", "HUMIDITY"));
+        assertEquals(List.of("104"), index.findSensorIds(new SensorFilter("Location-1", null)).get());
+    }
+
+    @Test
+    void loaded_sensor_expires_by_its_reading_time() {
+        when(sensorStateLoader.loadLatestReadings()).thenReturn(List.of(
+            reading("101", "Location-1", "TEMP_PRESSURE", LocalDateTime.now().minusMinutes(61)),
+            reading("102", "Location-1", "TEMP_PRESSURE", LocalDateTime.now().minusMinutes(30))));
+        index.load();
+        // the channel's reading is as old, but only just arrived
+        index.onSensorUpdate(reading("103", "Location-1", "HUMIDITY", LocalDateTime.now().minusMinutes(61)));
+
+        index.pruneExpiredSensors();
+
+        assertEquals(List.of("102", "103"), index.findSensorIds(new SensorFilter("Location-1", null)).get());
+    }
+
+    @Test
+    void empty_until_rebuilt_after_resubscribe() {
+        index.onSubscribed();
+
+        Optional<List<String>> ids = index.findSensorIds(new SensorFilter("Location-1", null));
+
+        assertTrue(ids.isEmpty());
+    }
+
+    private static SensorReading reading(String sensorId, String location, String sensorType) {
+        return new SensorReading(sensorId, sensorType, 20.0, 1000.0, location);
+    }
+
+    private static SensorReading reading(String sensorId, String location, String sensorType, LocalDateTime timestamp) {
+        return new SensorReading(sensorId, sensorType, 20.0, 1000.0, timestamp, location);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorFilter;
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorRedisRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests for the streaming export
+ * walks the index page by page and only writes readings that pass the filter
+ */
+@ExtendWith(MockitoExtension.class)
+class SensorExportServiceTest {
+
+    @Mock
+    private SensorRedisRepository sensorRedisRepository;
+
+    @Mock
+    private SensorAttributeIndex sensorAttributeIndex;
+
+    @Mock
+    private SensorUpdateSubscriber sensorUpdateSubscriber;
+
+    @InjectMocks
+    private SensorExportService sensorExportService;
+
+    private final SensorReading first = new SensorReading("101", "TEMP_PRESSURE", 25.5, 1013.25,
+        LocalDateTime.of(2024, 1, 1, 12, 0), "Location-1");
+    private final SensorReading second = new SensorReading("102", "TEMP_PRESSURE", 19.0, 990.0,
+        LocalDateTime.of(2024, 1, 1, 12, 5), "Hall, east");
+    private final SensorReading third = new SensorReading("103", "HUMIDITY", 20.0, 1000.0,
+        LocalDateTime.of(2024, 1, 1, 12, 10), "Location-1");
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ReflectionTestUtils.setField(sensorExportService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(sensorExportService, "pageSize", 2);
+
+        // two pages: 101,102 then 103
+        when(sensorRedisRepository.findSensorIdPageAsync(null, 2))
+            .thenReturn(CompletableFuture.completedFuture(List.of("101", "102")));
+        when(sensorRedisRepository.findSensorIdPageAsync("102", 2))
+            .thenReturn(CompletableFuture.completedFuture(List.of("103")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101", "102")))
+            .thenReturn(CompletableFuture.completedFuture(readings(first, second)));
+        when(sensorRedisRepository.findReadingsAsync(List.of("103")))
+            .thenReturn(CompletableFuture.completedFuture(readings(third)));
+    }
+
+    @Test
+    void exports_every_page_as_csv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = sensorExportService.export(ExportFormat.CSV, new SensorFilter(), out);
+
+        assertEquals(3, written);
+        assertEquals("sensorId,sensorType,location,temperature,pressure,timestamp\n"
+                + "101,TEMP_PRESSURE,Location-1,25.5,1013.25,2024-01-01T12:00\n"
+                + "102,TEMP_PRESSURE,\"Hall, east\",19.0,990.0,2024-01-01T12:05\n"
+                + "103,HUMIDITY,Location-1,20.0,1000.0,2024-01-01T12:10\n",
+            out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exports_filtered_ndjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = sensorExportService.export(ExportFormat.NDJSON, new SensorFilter("Location-1", null), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, written);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"sensorId\":\"101\""));
+        assertTrue(lines[1].contains("\"sensorId\":\"103\""));
+    }
+
+    private static Map<String, SensorReading> readings(SensorReading... readings) {
+        Map<String, SensorReading> map = new LinkedHashMap<>();
+        for (SensorReading reading : readings) {
+            map.put(reading.getSensorId(), reading);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.model.SensorUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the near-cache
+ * - updates from the channel replace cached values
+ * - least recently used entry is evicted when full
+ * - hit ratio is tracked
+ * - entries keep the version they were written at for /latest
+ */
+class SensorNearCacheTest {
+
+    @Test
+    void update_replaces_cached_reading() {
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.put(reading("101", 20.0));
+
+        cache.onSensorUpdate(reading("101", 30.0));
+
+        assertEquals(30.0, cache.get("101").orElseThrow().getTemperature());
+    }
+
+    @Test
+    void evicts_least_recently_used_when_full() {
+        SensorNearCache cache = new SensorNearCache(2, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.put(reading("101", 20.0));
+        cache.put(reading("102", 21.0));
+        cache.get("101");
+
+        cache.put(reading("103", 22.0));
+
+        assertTrue(cache.get("101").isPresent());
+        assertFalse(cache.get("102").isPresent());
+        assertTrue(cache.get("103").isPresent());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void expired_entries_are_misses() {
+        // negative ttl so every entry is already expired
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMillis(-1), new SimpleMeterRegistry());
+        cache.put(reading("101", 20.0));
+
+        assertTrue(cache.getAll(List.of("101")).isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void tracks_hit_ratio() {
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.put(reading("101", 20.0));
+
+        cache.get("101");
+        cache.get("999");
+
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void update_keeps_its_version() {
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+        cache.onSensorUpdate(reading("101", 30.0), 42);
+
+        SensorUpdate cached = cache.getWithVersion("101").orElseThrow();
+        assertEquals(42, cached.getVersion());
+        assertEquals(30.0, cached.getReading().getTemperature());
+    }
+
+    @Test
+    void entries_without_version_are_misses_for_versioned_lookups() {
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.put(reading("101", 20.0));
+
+        assertTrue(cache.getWithVersion("101").isEmpty());
+        assertTrue(cache.get("101").isPresent());
+    }
+
+    @Test
+    void older_version_does_not_replace_newer_entry() {
+        SensorNearCache cache = new SensorNearCache(10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.onSensorUpdate(reading("101", 30.0), 42);
+
+        // a Redis read that started before update 42 arrived
+        cache.put(reading("101", 20.0), 41);
+
+        assertEquals(42, cache.getWithVersion("101").orElseThrow().getVersion());
+        assertEquals(30.0, cache.get("101").orElseThrow().getTemperature());
+    }
+
+    private static SensorReading reading(String sensorId, double temperature) {
+        return new SensorReading(sensorId, "TEMP_PRESSURE", temperature, 1013.25, "Location-1");
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.api.service;
 
+import com.example.api.model.SensorChanges;
+import com.example.api.model.SensorMetric;
+import com.example.api.model.SensorPage;
 import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorRedisRepository;
+import com.example.api.sharding.RedisShards;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,8 +16,13 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,15 +43,34 @@ class SensorServiceTest {
     @Mock
     private ValueOperations<String, Object> valueOperations;
 
+    @Mock
+    private RedisShards redisShards;
+
+    @Mock
+    private SensorRedisRepository sensorRedisRepository;
+
+    @Mock
+    private SensorNearCache sensorNearCache;
+
+    @Mock
+    private SensorUpdateSubscriber sensorUpdateSubscriber;
+
     @InjectMocks
     private SensorService sensorService;
 
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisShards.templateFor(anyString())).thenReturn(redisTemplate);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         
-        // inject the key prefix
+        // inject the key prefix and page limits
         ReflectionTestUtils.setField(sensorService, "redisKeyPrefix", "sensor:");
+        ReflectionTestUtils.setField(sensorService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(sensorService, "maxPageSize", 3);
+        ReflectionTestUtils.setField(sensorService, "maxChanges", 2);
+        ReflectionTestUtils.setField(sensorService, "coalesceTtl", Duration.ZERO);
+        ReflectionTestUtils.setField(sensorService, "coalesceMaxEntries", 10);
+        sensorService.init();
     }
 
     @Test
@@ -101,4 +130,182 @@ class SensorServiceTest {
         assertEquals(expectedReading.getPressure(), result.get().getPressure());
         verify(valueOperations).get("sensor:" + sensorId);
     }
+
+    @Test
+    void skips_near_cache_until_it_has_caught_up() {
+        String sensorId = "101";
+        SensorReading reading = new SensorReading(sensorId, "TEMP_PRESSURE", 25.5, 1013.25, "Location-1");
+        when(sensorUpdateSubscriber.currentVersion(sensorId)).thenReturn(OptionalLong.of(7));
+        when(valueOperations.get("sensor:" + sensorId)).thenReturn(reading);
+
+        // the sensor was written at version 8 of its shard, after what the cache has seen
+        Optional<SensorReading> result = sensorService.getLatestSensorReading(sensorId, 8);
+
+        assertTrue(result.isPresent());
+        verify(sensorNearCache, never()).get(sensorId);
+        verify(valueOperations).get("sensor:" + sensorId);
+    }
+
+    @Test
+    void near_cache_only_needs_the_sensors_own_shard_to_have_caught_up() {
+        String sensorId = "101";
+        SensorReading reading = new SensorReading(sensorId, "TEMP_PRESSURE", 25.5, 1013.25, "Location-1");
+        when(sensorUpdateSubscriber.currentVersion(sensorId)).thenReturn(OptionalLong.of(8));
+        when(sensorNearCache.get(sensorId)).thenReturn(Optional.of(reading));
+
+        Optional<SensorReading> result = sensorService.getLatestSensorReading(sensorId, 8);
+
+        assertEquals(Optional.of(reading), result);
+        verify(sensorUpdateSubscriber, never()).currentVersion();
+        verifyNoInteractions(valueOperations);
+    }
+
+    @Test
+    void cached_update_is_not_used_while_unsubscribed() {
+        when(sensorUpdateSubscriber.isSubscribed()).thenReturn(false);
+
+        assertTrue(sensorService.getCachedSensorUpdate("101").isEmpty());
+        verifyNoInteractions(sensorNearCache);
+    }
+
+    @Test
+    void reading_loaded_from_redis_is_cached_with_the_version_read_before_it() {
+        SensorReading reading = new SensorReading("101", "TEMP_PRESSURE", 25.5, 1013.25, "Location-1");
+        when(valueOperations.get("sensor:101")).thenReturn(reading);
+
+        sensorService.loadLatestSensorReading("101", 12);
+
+        verify(sensorNearCache).put(reading, 12);
+    }
+
+    @Test
+    void full_page_returns_next_cursor() {
+        when(sensorRedisRepository.findSensorIdPageAsync(null, 2))
+            .thenReturn(CompletableFuture.completedFuture(List.of("101", "102")));
+
+        SensorPage<String> page = sensorService.getSensorIdPage(null, null);
+
+        assertEquals(List.of("101", "102"), page.getItems());
+        assertEquals("102", page.getNextCursor());
+    }
+
+    @Test
+    void last_page_has_no_cursor_and_limit_is_capped() {
+        when(sensorRedisRepository.findSensorIdPageAsync("102", 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("103")));
+
+        SensorPage<String> page = sensorService.getSensorIdPage("102", 50);
+
+        assertEquals(List.of("103"), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void changes_since_returns_only_changed_sensors() {
+        SensorReading reading = new SensorReading("102", "TEMP_PRESSURE", 21.0, 1000.0, "Location-2");
+        when(sensorRedisRepository.findDataVersionsAsync()).thenReturn(versions(12L));
+        when(sensorRedisRepository.findPrunedVersionsAsync()).thenReturn(versions(3L));
+        when(sensorRedisRepository.findChangedSensorIdsAsync(List.of(10L), List.of(12L), 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("102")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("102")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("102", reading)));
+
+        SensorChanges changes = sensorService.getChangesSinceAsync("10").join();
+
+        assertFalse(changes.isSnapshot());
+        assertEquals("12", changes.getVersion());
+        assertEquals(List.of(reading), changes.getReadings());
+    }
+
+    @Test
+    void changes_before_last_prune_return_snapshot() {
+        when(sensorRedisRepository.findDataVersionsAsync()).thenReturn(versions(12L));
+        when(sensorRedisRepository.findPrunedVersionsAsync()).thenReturn(versions(11L));
+        when(sensorRedisRepository.findAllSensorIdsAsync())
+            .thenReturn(CompletableFuture.completedFuture(List.of("101")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+        SensorChanges changes = sensorService.getChangesSinceAsync("10").join();
+
+        assertTrue(changes.isSnapshot());
+        assertEquals("12", changes.getVersion());
+        verify(sensorRedisRepository, never()).findChangedSensorIdsAsync(anyList(), anyList(), anyInt());
+    }
+
+    @Test
+    void too_many_changes_return_snapshot() {
+        when(sensorRedisRepository.findDataVersionsAsync()).thenReturn(versions(12L));
+        when(sensorRedisRepository.findPrunedVersionsAsync()).thenReturn(versions(0L));
+        when(sensorRedisRepository.findChangedSensorIdsAsync(List.of(1L), List.of(12L), 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("101", "102", "103")));
+        when(sensorRedisRepository.findAllSensorIdsAsync())
+            .thenReturn(CompletableFuture.completedFuture(List.of("101", "102", "103")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101", "102", "103")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+        assertTrue(sensorService.getChangesSinceAsync("1").join().isSnapshot());
+    }
+
+    @Test
+    void write_in_flight_when_the_cursor_is_handed_out_is_in_the_next_delta() {
+        SensorReading first = new SensorReading("101", "TEMP_PRESSURE", 21.0, 1000.0, "Location-1");
+        SensorReading late = new SensorReading("102", "TEMP_PRESSURE", 22.0, 1001.0, "Location-2");
+        // two shards; the second one takes the in-flight write's version only in the script that
+        // indexes it, so it is still at 6 when the first cursor is handed out and at 7 afterwards
+        when(sensorRedisRepository.findDataVersionsAsync()).thenReturn(versions(4L, 6L), versions(4L, 7L));
+        when(sensorRedisRepository.findPrunedVersionsAsync()).thenReturn(versions(0L, 0L));
+        when(sensorRedisRepository.findChangedSensorIdsAsync(List.of(4L, 5L), List.of(4L, 6L), 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("101")));
+        when(sensorRedisRepository.findChangedSensorIdsAsync(List.of(4L, 6L), List.of(4L, 7L), 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("102")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("101", first)));
+        when(sensorRedisRepository.findReadingsAsync(List.of("102")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("102", late)));
+
+        SensorChanges before = sensorService.getChangesSinceAsync("4.5").join();
+        SensorChanges after = sensorService.getChangesSinceAsync(before.getVersion()).join();
+
+        assertEquals("4.6", before.getVersion());
+        assertEquals(List.of(first), before.getReadings());
+        assertFalse(after.isSnapshot());
+        assertEquals("4.7", after.getVersion());
+        assertEquals(List.of(late), after.getReadings());
+    }
+
+    @Test
+    void cursor_for_other_shards_returns_snapshot() {
+        when(sensorRedisRepository.findDataVersionsAsync()).thenReturn(versions(4L, 6L));
+        when(sensorRedisRepository.findPrunedVersionsAsync()).thenReturn(versions(0L, 0L));
+        when(sensorRedisRepository.findAllSensorIdsAsync())
+            .thenReturn(CompletableFuture.completedFuture(List.of("101")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101")))
+            .thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+        // issued before a third shard was removed
+        SensorChanges changes = sensorService.getChangesSinceAsync("4.6.2").join();
+
+        assertTrue(changes.isSnapshot());
+        assertEquals("4.6", changes.getVersion());
+        verify(sensorRedisRepository, never()).findChangedSensorIdsAsync(anyList(), anyList(), anyInt());
+    }
+
+    @Test
+    void range_query_drops_readings_that_left_the_range() {
+        SensorReading hot = new SensorReading("101", "TEMP_PRESSURE", 36.0, 1000.0, "Location-1");
+        SensorReading cooled = new SensorReading("102", "TEMP_PRESSURE", 30.0, 1000.0, "Location-2");
+        when(sensorRedisRepository.findSensorIdsInRangeAsync(SensorMetric.TEMPERATURE, 35.0, null, 0, 3))
+            .thenReturn(CompletableFuture.completedFuture(List.of("101", "102")));
+        when(sensorNearCache.getAll(List.of("101", "102"))).thenReturn(Map.of("101", hot, "102", cooled));
+
+        List<SensorReading> readings = sensorService
+            .getSensorReadingsInRangeAsync(SensorMetric.TEMPERATURE, 35.0, null, null, 10).join();
+
+        assertEquals(List.of(hot), readings);
+    }
+
+    private static CompletableFuture<List<Long>> versions(Long... perShard) {
+        return CompletableFuture.completedFuture(List.of(perShard));
+    }
 }
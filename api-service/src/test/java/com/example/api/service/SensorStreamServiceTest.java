@@ -0,0 +1,119 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the SSE stream
+ * the snapshot is read off the request thread, later updates follow it, and a failed snapshot drops the client
+ */
+class SensorStreamServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SensorStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new SensorStreamService();
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "maxClients", 10);
+        ReflectionTestUtils.setField(service, "streamTimeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "sendThreads", 1);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void snapshot_is_read_on_a_send_thread_and_updates_follow_it() throws Exception {
+        CompletableFuture<String> snapshotThread = new CompletableFuture<>();
+        CountDownLatch snapshotMayLoad = new CountDownLatch(1);
+
+        assertTrue(service.subscribe(List.of("101"), () -> {
+            snapshotThread.complete(Thread.currentThread().getName());
+            await(snapshotMayLoad);
+            return List.of(reading("101", 20.0));
+        }).isPresent());
+        // buffered until the snapshot has gone out
+        service.onSensorUpdate(reading("101", 21.0));
+        service.onSensorUpdate(reading("101", 22.0));
+        service.onSensorUpdate(reading("102", 30.0));
+        snapshotMayLoad.countDown();
+
+        assertTrue(snapshotThread.get(10, TimeUnit.SECONDS).startsWith("sensor-stream-"));
+        // both readings of 101 conflated into one, 102 not followed
+        assertEquals(1.0, awaitCount("sensor.stream.readings", 1.0));
+        assertEquals(2.0, awaitCount("sensor.stream.events", 2.0));
+    }
+
+    @Test
+    void updates_reach_every_client_through_one_send_thread() throws Exception {
+        service.subscribe(List.of(), () -> List.of());
+        service.subscribe(List.of(), () -> List.of());
+
+        for (int i = 0; i < 100; i++) {
+            service.onSensorUpdate(reading("101", 20.0 + i));
+        }
+
+        // every reading reaches both clients, conflated or not
+        double readings = awaitCount("sensor.stream.readings", 2.0);
+        assertTrue(readings >= 2.0 && readings <= 200.0, "readings " + readings);
+        assertEquals(2, service.getClientCount());
+    }
+
+    @Test
+    void failed_snapshot_drops_the_client() throws Exception {
+        service.subscribe(List.of(), () -> {
+            throw new IllegalStateException("Redis down");
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (service.getClientCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getClientCount());
+    }
+
+    private double awaitCount(String name, double atLeast) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        double count = 0;
+        while (System.nanoTime() < deadline) {
+            count = meterRegistry.get(name).counter().count();
+            if (count >= atLeast) {
+                // let any further sends land before the caller looks at the exact count
+                Thread.sleep(100);
+                return meterRegistry.get(name).counter().count();
+            }
+            Thread.sleep(10);
+        }
+        return count;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SensorReading reading(String sensorId, double temperature) {
+        return new SensorReading(sensorId, "TEMP_PRESSURE", temperature, 1000.0, "Location-1");
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorReadingCodec;
+import com.example.api.sharding.RedisShard;
+import com.example.api.sharding.RedisShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests for the versions the subscriber reports
+ * every shard numbers its own updates, so one shard's update must not vouch for another's sensors
+ * updates dropped by the full delivery queue count as a lost subscription until the next resync
+ */
+class SensorUpdateSubscriberTest {
+
+    private RedisShard first;
+    private RedisShard second;
+    private SensorUpdateListener listener;
+    private ThreadPoolTaskExecutor executor;
+    private SensorUpdateSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        first = shard("redis-a:6379");
+        second = shard("redis-b:6379");
+        listener = mock(SensorUpdateListener.class);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setQueueCapacity(1);
+        executor.initialize();
+
+        subscriber = new SensorUpdateSubscriber();
+        ReflectionTestUtils.setField(subscriber, "redisShards", new RedisShards(List.of(first, second), 160, List.of()));
+        ReflectionTestUtils.setField(subscriber, "sensorReadingCodec", new SensorReadingCodec());
+        ReflectionTestUtils.setField(subscriber, "listeners", List.of(listener));
+        ReflectionTestUtils.setField(subscriber, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(subscriber, "sensorUpdateExecutor", executor);
+        ReflectionTestUtils.setField(subscriber, "updateChannel", "sensor-updates");
+        ReflectionTestUtils.setField(subscriber, "versionKey", "sensors:version");
+        subscriber.init();
+        ReflectionTestUtils.setField(subscriber, "subscribed", true);
+    }
+
+    @Test
+    void update_on_one_shard_does_not_advance_the_other() {
+        String onFirst = sensorOn(first);
+        String onSecond = sensorOn(second);
+        subscriber.onMessage(second, update(onSecond, 3));
+
+        subscriber.onMessage(first, update(onFirst, 9));
+
+        assertEquals(OptionalLong.of(9), subscriber.currentVersion(onFirst));
+        assertEquals(OptionalLong.of(3), subscriber.currentVersion(onSecond));
+        assertEquals(Optional.of(List.of(9L, 3L)), subscriber.currentVersions());
+        verify(listener).onSensorUpdate(any(SensorReading.class), eq(9L));
+    }
+
+    @Test
+    void current_version_grows_with_every_shard() {
+        subscriber.onMessage(first, update(sensorOn(first), 9));
+        long before = subscriber.currentVersion().getAsLong();
+
+        subscriber.onMessage(second, update(sensorOn(second), 1));
+
+        assertTrue(subscriber.currentVersion().getAsLong() > before);
+    }
+
+    @Test
+    void nothing_is_current_before_the_subscription() {
+        ReflectionTestUtils.setField(subscriber, "subscribed", false);
+        subscriber.onMessage(first, update(sensorOn(first), 9));
+
+        assertTrue(subscriber.currentVersion(sensorOn(first)).isEmpty());
+        assertTrue(subscriber.currentVersions().isEmpty());
+    }
+
+    @Test
+    void dropped_update_loses_the_subscription_until_the_next_resync() {
+        subscriber.onMessage(first, update(sensorOn(first), 9));
+
+        executor.getThreadPoolExecutor().getRejectedExecutionHandler()
+                .rejectedExecution(() -> { }, executor.getThreadPoolExecutor());
+
+        assertFalse(subscriber.isSubscribed());
+        assertTrue(subscriber.currentVersion().isEmpty());
+
+        subscriber.subscribe();
+
+        assertTrue(subscriber.isSubscribed());
+        verify(listener).onSubscribed();
+        // the stored version the listeners reloaded as of
+        assertEquals(OptionalLong.of(12), subscriber.currentVersion(sensorOn(first)));
+    }
+
+    private String sensorOn(RedisShard shard) {
+        RedisShards shards = (RedisShards) ReflectionTestUtils.getField(subscriber, "redisShards");
+        return IntStream.range(100, 1000)
+                .mapToObj(String::valueOf)
+                .filter(id -> shards.forSensor(id) == shard)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Message update(String sensorId, long version) {
+        String json = "{\"sensorId\":\"" + sensorId + "\",\"temperature\":21.0,\"pressure\":1000.0,\"version\":" + version + "}";
+        Message message = mock(Message.class);
+        when(message.getBody()).thenReturn(json.getBytes(StandardCharsets.UTF_8));
+        return message;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisShard shard(String name) {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        when(container.isListening()).thenReturn(true);
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        lenient().when(template.opsForValue()).thenReturn(values);
+        lenient().when(values.get("sensors:version")).thenReturn("12");
+        return new RedisShard(name, template, null, null, container);
+    }
+}
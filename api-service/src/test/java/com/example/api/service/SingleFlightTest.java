@@ -0,0 +1,75 @@
+package com.example.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for request coalescing
+ * concurrent callers share one load, results are kept for the ttl, failures are not kept
+ */
+class SingleFlightTest {
+
+    @Test
+    void concurrent_callers_share_one_load() {
+        SingleFlight<String, String> flights = new SingleFlight<>(0, 10);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = flights.execute("all", () -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = flights.execute("all", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        pending.complete("readings");
+
+        assertEquals(1, loads.get());
+        assertEquals("readings", first.join());
+        assertEquals("readings", second.join());
+    }
+
+    @Test
+    void completed_result_is_reused_within_ttl() {
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofMinutes(1).toNanos(), 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        flights.execute("all", () -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+        String reused = flights.execute("all", () -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+        String other = flights.execute("page", () -> CompletableFuture.completedFuture("v" + loads.incrementAndGet())).join();
+
+        assertEquals("v1", reused);
+        assertEquals("v2", other);
+    }
+
+    @Test
+    void failures_are_not_kept() {
+        SingleFlight<String, String> flights = new SingleFlight<>(Duration.ofMinutes(1).toNanos(), 10);
+
+        CompletableFuture<String> failed = flights.execute("all",
+            () -> CompletableFuture.failedFuture(new IllegalStateException("redis down")));
+        String retried = flights.execute("all", () -> CompletableFuture.completedFuture("readings")).join();
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("readings", retried);
+        assertEquals(1, flights.size());
+    }
+
+    @Test
+    void kept_results_are_bounded() {
+        SingleFlight<Integer, Integer> flights = new SingleFlight<>(Duration.ofMinutes(1).toNanos(), 3);
+
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            flights.execute(i, () -> CompletableFuture.completedFuture(value)).join();
+        }
+
+        assertTrue(flights.size() <= 3);
+    }
+}
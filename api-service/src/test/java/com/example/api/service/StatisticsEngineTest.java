@@ -0,0 +1,182 @@
+package com.example.api.service;
+
+import com.example.api.model.SensorReading;
+import com.example.api.repository.SensorReadingCodec;
+import com.example.api.repository.SensorRedisRepository;
+import com.example.api.sharding.RedisShard;
+import com.example.api.sharding.RedisShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests for the incremental statistics engine
+ * after dropped updates /statistics is aggregated from a fresh read until the engine has reloaded,
+ * and loaded readings expire by when they were taken, not when they were loaded
+ */
+class StatisticsEngineTest {
+
+    private SensorStateLoader sensorStateLoader;
+    private SensorRedisRepository sensorRedisRepository;
+    private ThreadPoolTaskExecutor executor;
+    private StatisticsEngine engine;
+    private SensorUpdateSubscriber subscriber;
+    private SensorService sensorService;
+
+    @BeforeEach
+    void setUp() {
+        sensorStateLoader = mock(SensorStateLoader.class);
+        engine = new StatisticsEngine();
+        ReflectionTestUtils.setField(engine, "sensorStateLoader", sensorStateLoader);
+        ReflectionTestUtils.setField(engine, "relativeAccuracy", 0.01);
+        ReflectionTestUtils.setField(engine, "readingTtl", Duration.ofHours(1));
+        engine.init();
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        subscriber = new SensorUpdateSubscriber();
+        ReflectionTestUtils.setField(subscriber, "redisShards", new RedisShards(List.of(shard()), 160, List.of()));
+        ReflectionTestUtils.setField(subscriber, "sensorReadingCodec", new SensorReadingCodec());
+        ReflectionTestUtils.setField(subscriber, "listeners", List.of(engine));
+        ReflectionTestUtils.setField(subscriber, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(subscriber, "sensorUpdateExecutor", executor);
+        ReflectionTestUtils.setField(subscriber, "updateChannel", "sensor-updates");
+        ReflectionTestUtils.setField(subscriber, "versionKey", "sensors:version");
+        subscriber.init();
+
+        sensorRedisRepository = mock(SensorRedisRepository.class);
+        SensorNearCache sensorNearCache = mock(SensorNearCache.class);
+        when(sensorNearCache.getAll(anyList())).thenReturn(Map.of());
+        sensorService = new SensorService();
+        ReflectionTestUtils.setField(sensorService, "statisticsEngine", engine);
+        ReflectionTestUtils.setField(sensorService, "sensorUpdateSubscriber", subscriber);
+        ReflectionTestUtils.setField(sensorService, "sensorRedisRepository", sensorRedisRepository);
+        ReflectionTestUtils.setField(sensorService, "sensorNearCache", sensorNearCache);
+        ReflectionTestUtils.setField(sensorService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(sensorService, "maxPageSize", 3);
+        ReflectionTestUtils.setField(sensorService, "maxChanges", 2);
+        ReflectionTestUtils.setField(sensorService, "coalesceTtl", Duration.ZERO);
+        ReflectionTestUtils.setField(sensorService, "coalesceMaxEntries", 10);
+        sensorService.init();
+    }
+
+    @Test
+    void statistics_are_aggregated_from_redis_until_the_reload_after_a_drop_is_done() throws Exception {
+        SensorReading stale = reading(20.0, LocalDateTime.now());
+        SensorReading fresh = reading(30.0, LocalDateTime.now());
+        CountDownLatch reloadMayFinish = new CountDownLatch(1);
+        when(sensorStateLoader.loadLatestReadings()).thenReturn(List.of(stale)).thenAnswer(invocation -> {
+            reloadMayFinish.await(10, TimeUnit.SECONDS);
+            return List.of(fresh);
+        });
+        when(sensorRedisRepository.findAllSensorIdsAsync()).thenReturn(CompletableFuture.completedFuture(List.of("101")));
+        when(sensorRedisRepository.findReadingsAsync(List.of("101")))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("101", fresh)));
+        engine.load();
+        ReflectionTestUtils.setField(subscriber, "subscribed", true);
+        assertEquals(20.0, averageTemperature());
+
+        // the update carrying the fresh reading does not fit the delivery queue
+        executor.getThreadPoolExecutor().getRejectedExecutionHandler()
+                .rejectedExecution(() -> { }, executor.getThreadPoolExecutor());
+        subscriber.subscribe();
+
+        assertTrue(subscriber.isSubscribed());
+        assertFalse(engine.isReady());
+        assertEquals(30.0, averageTemperature());
+
+        reloadMayFinish.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!engine.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(engine.isReady());
+        assertEquals(30.0, averageTemperature());
+        assertEquals(30.0, engine.query(null, new double[0]).get("averageTemperature"));
+    }
+
+    @Test
+    void load_started_before_a_resubscription_does_not_make_the_engine_ready() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadMayFinish = new CountDownLatch(1);
+        when(sensorStateLoader.loadLatestReadings()).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            loadMayFinish.await(10, TimeUnit.SECONDS);
+            return List.of(reading(20.0, LocalDateTime.now()));
+        }).thenReturn(List.of());
+        CompletableFuture<Void> earlier = CompletableFuture.runAsync(engine::load);
+        assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+        ReflectionTestUtils.setField(engine, "loadGeneration", 1L);
+        loadMayFinish.countDown();
+        earlier.get(10, TimeUnit.SECONDS);
+
+        assertFalse(engine.isReady());
+    }
+
+    @Test
+    void loaded_reading_expires_by_its_own_timestamp() {
+        when(sensorStateLoader.loadLatestReadings()).thenReturn(List.of(
+                reading("101", 20.0, LocalDateTime.now().minusMinutes(61)),
+                reading("102", 30.0, LocalDateTime.now().minusMinutes(30))));
+        engine.load();
+
+        engine.pruneExpiredSensors();
+
+        assertEquals(1L, engine.query(null, new double[0]).get("totalSensors"));
+        assertEquals(30.0, engine.query(null, new double[0]).get("averageTemperature"));
+    }
+
+    @Test
+    void update_is_kept_for_a_full_ttl_from_when_it_arrived() {
+        when(sensorStateLoader.loadLatestReadings()).thenReturn(List.of());
+        engine.load();
+        // the channel delivers the reading now, whatever its producer clock said
+        engine.onSensorUpdate(reading("101", 20.0, LocalDateTime.now().minusMinutes(61)));
+
+        engine.pruneExpiredSensors();
+
+        assertEquals(1L, engine.query(null, new double[0]).get("totalSensors"));
+    }
+
+    private Object averageTemperature() {
+        return sensorService.getSensorStatistics(null, new double[0]).get("averageTemperature");
+    }
+
+    private static SensorReading reading(double temperature, LocalDateTime timestamp) {
+        return reading("101", temperature, timestamp);
+    }
+
+    private static SensorReading reading(String sensorId, double temperature, LocalDateTime timestamp) {
+        return new SensorReading(sensorId, "TEMP_PRESSURE", temperature, 1000.0, timestamp, "Location-1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisShard shard() {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        when(container.isListening()).thenReturn(true);
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        when(values.get("sensors:version")).thenReturn("12");
+        return new RedisShard("redis-a:6379", template, null, null, container);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.api.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the consistent hash ring
+ * placement is stable, shards get even shares, adding a shard only moves keys onto it
+ * pinned hashes and placements: the consumer-service's test pins the same values, so the two
+ * copies of the ring cannot drift apart
+ */
+class ConsistentHashRingTest {
+
+    private static final int SENSORS = 20_000;
+
+    @Test
+    void hash_values_are_pinned() {
+        assertEquals(0xefd01f60ba992926L, ConsistentHashRing.hash(""));
+        assertEquals(0xe48ebf8a0c76ec30L, ConsistentHashRing.hash("101"));
+        assertEquals(0xcb9f3a32583a2c0eL, ConsistentHashRing.hash("sensor-42"));
+        assertEquals(0xf50b1f8e2c0682e6L, ConsistentHashRing.hash("caf\u00e9"));
+    }
+
+    @Test
+    void placements_are_pinned() {
+        ConsistentHashRing<String> ring = ring(3);
+
+        assertEquals("redis-3:6379", ring.nodeFor("100"));
+        assertEquals("redis-3:6379", ring.nodeFor("101"));
+        assertEquals("redis-1:6379", ring.nodeFor("103"));
+        assertEquals("redis-2:6379", ring.nodeFor("105"));
+        assertEquals("redis-2:6379", ring.nodeFor("250"));
+        assertEquals("redis-2:6379", ring.nodeFor("999"));
+    }
+
+    @Test
+    void placement_does_not_depend_on_listing_order() {
+        Map<String, String> forward = new LinkedHashMap<>();
+        forward.put("redis-1:6379", "redis-1:6379");
+        forward.put("redis-2:6379", "redis-2:6379");
+        forward.put("redis-3:6379", "redis-3:6379");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("redis-3:6379", "redis-3:6379");
+        reversed.put("redis-2:6379", "redis-2:6379");
+        reversed.put("redis-1:6379", "redis-1:6379");
+
+        ConsistentHashRing<String> first = new ConsistentHashRing<>(forward, 160);
+        ConsistentHashRing<String> second = new ConsistentHashRing<>(reversed, 160);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.nodeFor(String.valueOf(i)), second.nodeFor(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void shards_get_even_shares() {
+        ConsistentHashRing<String> ring = ring(4);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < SENSORS; i++) {
+            counts.merge(ring.nodeFor(String.valueOf(100 + i)), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        // 160 points per shard keep every share within a few percent of a quarter
+        counts.values().forEach(count -> assertEquals(SENSORS / 4.0, count, SENSORS * 0.05));
+    }
+
+    @Test
+    void adding_a_shard_only_moves_keys_onto_it() {
+        ConsistentHashRing<String> before = ring(4);
+        ConsistentHashRing<String> after = ring(5);
+
+        int moved = 0;
+        for (int i = 0; i < SENSORS; i++) {
+            String sensorId = String.valueOf(100 + i);
+            String from = before.nodeFor(sensorId);
+            String to = after.nodeFor(sensorId);
+            if (!from.equals(to)) {
+                assertEquals("redis-5:6379", to);
+                moved++;
+            }
+        }
+
+        // About a fifth of the keys, far from the 80% a modulo placement would move
+        assertEquals(SENSORS / 5.0, moved, SENSORS * 0.05);
+    }
+
+    @Test
+    void a_single_node_owns_every_key() {
+        ConsistentHashRing<String> ring = ring(1);
+
+        assertEquals("redis-1:6379", ring.nodeFor("101"));
+        assertEquals("redis-1:6379", ring.nodeFor(""));
+    }
+
+    @Test
+    void rejects_an_empty_ring() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing<>(Map.of(), 160));
+        assertThrows(IllegalArgumentException.class, () -> ring(0));
+    }
+
+    private static ConsistentHashRing<String> ring(int shards) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (int i = 1; i <= shards; i++) {
+            nodes.put("redis-" + i + ":6379", "redis-" + i + ":6379");
+        }
+        return new ConsistentHashRing<>(nodes, 160);
+    }
+}
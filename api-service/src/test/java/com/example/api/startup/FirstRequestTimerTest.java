@@ -0,0 +1,70 @@
+package com.example.api.startup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the first-request timer
+ * only the first sensor API request is timed, warm-up and other requests are skipped
+ */
+class FirstRequestTimerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FirstRequestTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        timer = new FirstRequestTimer();
+        ReflectionTestUtils.setField(timer, "meterRegistry", meterRegistry);
+        timer.init();
+    }
+
+    @Test
+    void unset_until_the_first_request() {
+        assertEquals(-1, firstRequestMillis());
+    }
+
+    @Test
+    void times_only_the_first_api_request() throws Exception {
+        serve(request("/api/sensors/latest"));
+        double first = firstRequestMillis();
+
+        serve(request("/api/sensors/all"));
+
+        assertTrue(first >= 0);
+        assertEquals(first, firstRequestMillis());
+    }
+
+    @Test
+    void skips_warmup_and_non_api_requests() throws Exception {
+        MockHttpServletRequest warmup = request("/api/sensors/list");
+        warmup.addHeader(StartupWarmup.WARMUP_HEADER, "true");
+
+        serve(warmup);
+        serve(request("/actuator/health"));
+
+        assertEquals(-1, firstRequestMillis());
+    }
+
+    private void serve(MockHttpServletRequest request) throws Exception {
+        timer.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private double firstRequestMillis() {
+        return meterRegistry.get("sensor.startup.first.request").timeGauge().value(TimeUnit.MILLISECONDS);
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.api.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the quantile sketch
+ * - estimates stay within the relative accuracy
+ * - removing values undoes adding them
+ * - merged sketches match one sketch over all the values
+ */
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.001;
+
+    @Test
+    void quantiles_within_relative_accuracy() {
+        Random random = new Random(42);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 20 + random.nextGaussian() * 5;
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        double[] qs = {0.0, 0.5, 0.95, 0.99, 1.0};
+        double[] estimates = sketch.quantiles(qs);
+        for (int i = 0; i < qs.length; i++) {
+            double expected = values[(int) (qs[i] * (values.length - 1))];
+            assertEquals(expected, estimates[i], Math.abs(expected) * ACCURACY * 1.01, "q=" + qs[i]);
+        }
+    }
+
+    @Test
+    void handles_negative_and_zero_values() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        sketch.add(-10.0);
+        sketch.add(0.0);
+        sketch.add(10.0);
+
+        assertEquals(-10.0, sketch.quantile(0.0), 10.0 * ACCURACY);
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(10.0, sketch.quantile(1.0), 10.0 * ACCURACY);
+    }
+
+    @Test
+    void remove_undoes_add() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        sketch.add(20.0);
+        sketch.add(30.0);
+        sketch.add(40.0);
+
+        sketch.remove(40.0);
+
+        assertEquals(2, sketch.getCount());
+        assertEquals(30.0, sketch.quantile(1.0), 30.0 * ACCURACY);
+    }
+
+    @Test
+    void merge_matches_single_sketch() {
+        QuantileSketch all = new QuantileSketch(ACCURACY);
+        QuantileSketch left = new QuantileSketch(ACCURACY);
+        QuantileSketch right = new QuantileSketch(ACCURACY);
+        for (int i = 1; i <= 1000; i++) {
+            all.add(i);
+            (i % 2 == 0 ? left : right).add(i);
+        }
+
+        left.merge(right);
+
+        assertEquals(all.getCount(), left.getCount());
+        assertArrayEquals(all.quantiles(new double[]{0.5, 0.95, 0.99}),
+                left.quantiles(new double[]{0.5, 0.95, 0.99}));
+    }
+
+    @Test
+    void empty_sketch_returns_nan() {
+        assertTrue(Double.isNaN(new QuantileSketch(ACCURACY).quantile(0.5)));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent readers of the api-service, each cycling through the configured
+ * endpoints back to back. Requests are only recorded while measuring, so the
+ * warm-up traffic compiles the read path without counting towards the result.
+ */
+@Slf4j
+public class ApiLoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final List<String> endpoints;
+    private final int readers;
+    private final int sensors;
+    private final HttpClient client;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    private volatile boolean running;
+    private volatile boolean measuring;
+    private ExecutorService executor;
+
+    public ApiLoadGenerator(int port, BenchmarkSettings settings) {
+        this.baseUrl = "http://localhost:" + port;
+        this.endpoints = settings.getEndpoints();
+        this.readers = settings.getReaders();
+        this.sensors = settings.getSensors();
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        for (String endpoint : endpoints) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public void start() {
+        if (readers <= 0) {
+            return;
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(readers, runnable -> {
+            Thread thread = new Thread(runnable, "benchmark-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < readers; i++) {
+            int offset = i;
+            executor.submit(() -> read(offset));
+        }
+    }
+
+    public void startMeasuring() {
+        measuring = true;
+    }
+
+    public void stop() throws InterruptedException {
+        measuring = false;
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    // Per endpoint: request rate, latency summary and response counts over the measured period
+    public List<Map<String, Object>> results(Duration measured) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        stats.forEach((endpoint, endpointStats) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("endpoint", endpoint);
+            result.put("requestsPerSecond", endpointStats.latency.count() * 1000.0 / measured.toMillis());
+            result.put("latency", endpointStats.latency.summary());
+            result.put("ok", endpointStats.ok.get());
+            result.put("shed", endpointStats.shed.get());
+            result.put("errors", endpointStats.errors.get());
+            results.add(result);
+        });
+        return results;
+    }
+
+    public long p99Nanos(String endpoint) {
+        return stats.get(endpoint).latency.percentile(99);
+    }
+
+    private void read(int offset) {
+        int next = offset;
+        while (running) {
+            String endpoint = endpoints.get(next++ % endpoints.size());
+            String path = endpoint.replace("{sensorId}",
+                    String.valueOf(101 + ThreadLocalRandom.current().nextInt(sensors)));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            EndpointStats endpointStats = stats.get(endpoint);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                long elapsed = System.nanoTime() - start;
+                if (measuring) {
+                    endpointStats.latency.record(elapsed);
+                    int status = response.statusCode();
+                    if (status < 400 || status == 404) {
+                        endpointStats.ok.incrementAndGet();
+                    } else if (status == 503) {
+                        endpointStats.shed.incrementAndGet();
+                    } else {
+                        endpointStats.errors.incrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (measuring) {
+                    endpointStats.errors.incrementAndGet();
+                }
+                log.debug("Request to {} failed: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private static class EndpointStats {
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong shed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
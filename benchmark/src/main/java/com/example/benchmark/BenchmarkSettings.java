@@ -0,0 +1,105 @@
+package com.example.benchmark;
+
+import lombok.Data;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark parameters, given as --name=value arguments. Offered load is
+ * sensors readings every interval; thresholds left unset are not checked.
+ */
+@Data
+public class BenchmarkSettings {
+
+    private int sensors = 100;
+    private Duration interval = Duration.ofMillis(100);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration duration = Duration.ofSeconds(30);
+    private int partitions = 3;
+
+    // Concurrent API readers and the endpoints they cycle through; {sensorId} is replaced by a random sensor
+    private int readers = 8;
+    private List<String> endpoints = List.of(
+            "/api/sensors/latest?sensorId={sensorId}",
+            "/api/sensors/all?limit=1000",
+            "/api/sensors/statistics");
+
+    // host:port of a dedicated Redis to use instead of the embedded one
+    private String redis;
+    private String report = "target/benchmark-report.json";
+
+    private double minThroughput;
+    private Duration maxIngestP99;
+    private Duration maxApiP99;
+
+    public static BenchmarkSettings parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        BenchmarkSettings settings = new BenchmarkSettings();
+        values.forEach((name, value) -> {
+            switch (name) {
+                case "sensors" -> settings.setSensors(positive(name, Integer.parseInt(value)));
+                case "interval" -> settings.setInterval(duration(value));
+                case "warmup" -> settings.setWarmup(duration(value));
+                case "duration" -> settings.setDuration(duration(value));
+                case "partitions" -> settings.setPartitions(positive(name, Integer.parseInt(value)));
+                case "readers" -> settings.setReaders(Integer.parseInt(value));
+                case "endpoints" -> settings.setEndpoints(new ArrayList<>(Arrays.asList(value.split(","))));
+                case "redis" -> settings.setRedis(value);
+                case "report" -> settings.setReport(value);
+                case "min-throughput" -> settings.setMinThroughput(Double.parseDouble(value));
+                case "max-ingest-p99" -> settings.setMaxIngestP99(duration(value));
+                case "max-api-p99" -> settings.setMaxApiP99(duration(value));
+                default -> throw new IllegalArgumentException("Unknown benchmark setting: " + name);
+            }
+        });
+        return settings;
+    }
+
+    // Readings per second the producer is asked to send
+    public double offeredRate() {
+        return sensors * 1000.0 / interval.toMillis();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("sensors", sensors);
+        map.put("interval", interval.toString());
+        map.put("offeredRate", offeredRate());
+        map.put("warmup", warmup.toString());
+        map.put("duration", duration.toString());
+        map.put("partitions", partitions);
+        map.put("readers", readers);
+        map.put("endpoints", endpoints);
+        map.put("redis", redis != null ? redis : "embedded");
+        return map;
+    }
+
+    private static Duration duration(String value) {
+        Duration duration = DurationStyle.detectAndParse(value);
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + value);
+        }
+        return duration;
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * Kafka broker and Redis server the services run against: a single embedded
+ * broker with the readings topic, and an embedded Redis unless a dedicated
+ * one was given.
+ */
+@Slf4j
+public class EmbeddedInfrastructure implements AutoCloseable {
+
+    public static final String READINGS_TOPIC = "sensor_readings";
+
+    private final EmbeddedKafkaBroker kafka;
+    private final RedisServer redisServer;
+    private final String redisHost;
+    private final int redisPort;
+
+    private EmbeddedInfrastructure(EmbeddedKafkaBroker kafka, RedisServer redisServer, String redisHost, int redisPort) {
+        this.kafka = kafka;
+        this.redisServer = redisServer;
+        this.redisHost = redisHost;
+        this.redisPort = redisPort;
+    }
+
+    public static EmbeddedInfrastructure start(BenchmarkSettings settings) throws IOException {
+        EmbeddedKafkaBroker kafka = new EmbeddedKafkaBroker(1, false, settings.getPartitions(), READINGS_TOPIC);
+        kafka.afterPropertiesSet();
+        log.info("Embedded Kafka broker at {}", kafka.getBrokersAsString());
+
+        if (settings.getRedis() != null) {
+            String[] address = settings.getRedis().split(":");
+            int port = address.length > 1 ? Integer.parseInt(address[1]) : 6379;
+            log.info("Using Redis at {}:{}", address[0], port);
+            return new EmbeddedInfrastructure(kafka, null, address[0], port);
+        }
+
+        int port = freePort();
+        RedisServer redisServer = RedisServer.newRedisServer()
+                .bind("127.0.0.1")
+                .port(port)
+                .setting("save \"\"")
+                .build();
+        try {
+            redisServer.start();
+        } catch (IOException e) {
+            kafka.destroy();
+            throw e;
+        }
+        log.info("Embedded Redis at 127.0.0.1:{}", port);
+        return new EmbeddedInfrastructure(kafka, redisServer, "127.0.0.1", port);
+    }
+
+    public String kafkaBootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    public String redisHost() {
+        return redisHost;
+    }
+
+    public int redisPort() {
+        return redisPort;
+    }
+
+    @Override
+    public void close() {
+        if (redisServer != null) {
+            try {
+                redisServer.stop();
+            } catch (IOException e) {
+                log.warn("Could not stop embedded Redis: {}", e.getMessage());
+            }
+        }
+        kafka.destroy();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps every latency sample of a run so percentiles are exact rather than
+ * estimated from buckets; a run of a few million samples fits easily.
+ */
+public class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50Ms", "p90Ms", "p99Ms", "p999Ms"};
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    // Sample percentile in nanos, 0 without samples
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return sorted[rank(percentile, count)];
+    }
+
+    // count, mean, percentiles and max in milliseconds
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        if (count == 0) {
+            return summary;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        summary.put("meanMs", millis((long) Arrays.stream(sorted).average().orElse(0)));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            summary.put(PERCENTILE_NAMES[i], millis(sorted[rank(PERCENTILES[i], count)]));
+        }
+        summary.put("maxMs", millis(sorted[count - 1]));
+        return summary;
+    }
+
+    private static int rank(double percentile, int count) {
+        return (int) Math.min(count - 1, Math.max(0, Math.ceil(percentile / 100.0 * count) - 1));
+    }
+
+    static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
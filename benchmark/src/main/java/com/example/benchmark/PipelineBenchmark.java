@@ -0,0 +1,154 @@
+package com.example.benchmark;
+
+import com.example.consumer.service.SensorDataConsumer;
+import com.example.producer.service.SensorDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end benchmark of the sensor pipeline. Boots the producer, consumer
+ * and api services in this JVM against an embedded Kafka broker and Redis,
+ * drives the configured sensor load with concurrent API readers, and writes
+ * ingest throughput, ingest-to-queryable latency and API latency to a JSON
+ * report. Exits with status 1 when a configured threshold is not met, so a
+ * build can fail on a regression.
+ *
+ * Run with: java -jar target/benchmark-1.0.0.jar --sensors=500 --interval=100ms --readers=16
+ */
+@Slf4j
+public class PipelineBenchmark {
+
+    private final BenchmarkSettings settings;
+    private final ServiceCluster services;
+    private final UpdateProbe probe;
+
+    PipelineBenchmark(BenchmarkSettings settings, ServiceCluster services, UpdateProbe probe) {
+        this.settings = settings;
+        this.services = services;
+        this.probe = probe;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkSettings settings = BenchmarkSettings.parse(args);
+        UpdateProbe probe = new UpdateProbe();
+        Map<String, Object> report;
+        try (EmbeddedInfrastructure infrastructure = EmbeddedInfrastructure.start(settings);
+             ServiceCluster services = ServiceCluster.start(settings, infrastructure, probe)) {
+            report = new PipelineBenchmark(settings, services, probe).run();
+        }
+
+        Path reportFile = Path.of(settings.getReport()).toAbsolutePath();
+        Files.createDirectories(reportFile.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+        log.info("Benchmark report written to {}", reportFile);
+
+        boolean passed = Boolean.TRUE.equals(report.get("passed"));
+        if (!passed) {
+            log.error("Benchmark thresholds not met: {}", report.get("checks"));
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        SensorDataService producer = services.producerBean(SensorDataService.class);
+        SensorDataConsumer consumer = services.consumerBean(SensorDataConsumer.class);
+        ApiLoadGenerator readers = new ApiLoadGenerator(services.apiPort(), settings);
+
+        log.info("Offering {} readings/s from {} sensors with {} API readers; warm-up {}, measuring {}",
+                settings.offeredRate(), settings.getSensors(), settings.getReaders(),
+                settings.getWarmup(), settings.getDuration());
+        producer.startSimulation();
+        readers.start();
+        Thread.sleep(settings.getWarmup().toMillis());
+
+        LatencyRecorder ingestLatency = probe.start();
+        readers.startMeasuring();
+        long sentBefore = producer.getMessagesSent();
+        long processedBefore = consumer.getProcessedMessageCount();
+        long start = System.nanoTime();
+
+        Thread.sleep(settings.getDuration().toMillis());
+
+        long sentAfter = producer.getMessagesSent();
+        long processedAfter = consumer.getProcessedMessageCount();
+        Duration measured = Duration.ofNanos(System.nanoTime() - start);
+        probe.stop();
+        readers.stop();
+        producer.stopSimulation();
+
+        double seconds = measured.toNanos() / 1e9;
+        Map<String, Object> ingest = new LinkedHashMap<>();
+        ingest.put("offeredPerSecond", settings.offeredRate());
+        ingest.put("sentPerSecond", (sentAfter - sentBefore) / seconds);
+        ingest.put("processedPerSecond", (processedAfter - processedBefore) / seconds);
+        // Readings acknowledged by Kafka but not yet stored when measuring ended
+        ingest.put("backlog", sentAfter - processedAfter);
+        ingest.put("latency", ingestLatency.summary());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("environment", environment());
+        report.put("settings", settings.toMap());
+        report.put("startupMillis", services.startupMillis());
+        report.put("measuredMillis", measured.toMillis());
+        report.put("ingest", ingest);
+        report.put("api", readers.results(measured));
+
+        List<Map<String, Object>> checks = checks((processedAfter - processedBefore) / seconds,
+                ingestLatency, readers);
+        report.put("checks", checks);
+        report.put("passed", checks.stream().allMatch(check -> Boolean.TRUE.equals(check.get("passed"))));
+        log.info("Ingest: {}", ingest);
+        return report;
+    }
+
+    private List<Map<String, Object>> checks(double throughput, LatencyRecorder ingestLatency,
+                                             ApiLoadGenerator readers) {
+        List<Map<String, Object>> checks = new ArrayList<>();
+        if (settings.getMinThroughput() > 0) {
+            checks.add(check("min-throughput", settings.getMinThroughput(), throughput,
+                    throughput >= settings.getMinThroughput()));
+        }
+        if (settings.getMaxIngestP99() != null) {
+            long p99 = ingestLatency.percentile(99);
+            checks.add(check("max-ingest-p99", settings.getMaxIngestP99().toMillis(), LatencyRecorder.millis(p99),
+                    p99 <= settings.getMaxIngestP99().toNanos()));
+        }
+        if (settings.getMaxApiP99() != null && settings.getReaders() > 0) {
+            for (String endpoint : settings.getEndpoints()) {
+                long p99 = readers.p99Nanos(endpoint);
+                checks.add(check("max-api-p99 " + endpoint, settings.getMaxApiP99().toMillis(),
+                        LatencyRecorder.millis(p99), p99 <= settings.getMaxApiP99().toNanos()));
+            }
+        }
+        return checks;
+    }
+
+    private static Map<String, Object> check(String name, double limit, double actual, boolean passed) {
+        Map<String, Object> check = new LinkedHashMap<>();
+        check.put("name", name);
+        check.put("limit", limit);
+        check.put("actual", actual);
+        check.put("passed", passed);
+        return check;
+    }
+
+    private static Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        return environment;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.benchmark;
+
+import com.example.api.ApiApplication;
+import com.example.consumer.ConsumerApplication;
+import com.example.producer.ProducerApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The three services, each in its own application context in this JVM with
+ * its own application.properties, pointed at the benchmark infrastructure.
+ * Started consumer first so readings are stored from the first one sent.
+ */
+@Slf4j
+public class ServiceCluster implements AutoCloseable {
+
+    private final Path archiveDir;
+    private ConfigurableApplicationContext consumer;
+    private ConfigurableApplicationContext api;
+    private ConfigurableApplicationContext producer;
+    private long startupMillis;
+
+    private ServiceCluster(Path archiveDir) {
+        this.archiveDir = archiveDir;
+    }
+
+    public static ServiceCluster start(BenchmarkSettings settings, EmbeddedInfrastructure infrastructure,
+                                       UpdateProbe probe) throws IOException {
+        ServiceCluster cluster = new ServiceCluster(Files.createTempDirectory("benchmark-archive"));
+        long start = System.nanoTime();
+        try {
+            cluster.consumer = new SpringApplicationBuilder(ConsumerApplication.class)
+                    .run(cluster.arguments("consumer-service", infrastructure, Map.of()));
+            cluster.api = new SpringApplicationBuilder(ApiApplication.class)
+                    .initializers((ApplicationContextInitializer<ConfigurableApplicationContext>) context ->
+                            context.getBeanFactory().registerSingleton("benchmarkUpdateProbe", probe))
+                    .run(cluster.arguments("api-service", infrastructure, Map.of()));
+            cluster.producer = new SpringApplicationBuilder(ProducerApplication.class)
+                    .run(cluster.arguments("producer-service", infrastructure, Map.of(
+                            "sensor.count", String.valueOf(settings.getSensors()),
+                            "sensor.interval", String.valueOf(settings.getInterval().toMillis()),
+                            "sensor.topic", EmbeddedInfrastructure.READINGS_TOPIC)));
+        } catch (RuntimeException e) {
+            cluster.close();
+            throw e;
+        }
+        cluster.startupMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Services started in {} ms, api-service on port {}", cluster.startupMillis, cluster.apiPort());
+        return cluster;
+    }
+
+    public <T> T consumerBean(Class<T> type) {
+        return consumer.getBean(type);
+    }
+
+    public <T> T producerBean(Class<T> type) {
+        return producer.getBean(type);
+    }
+
+    public int apiPort() {
+        return api.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public long startupMillis() {
+        return startupMillis;
+    }
+
+    @Override
+    public void close() {
+        for (ConfigurableApplicationContext context : new ConfigurableApplicationContext[]{producer, api, consumer}) {
+            if (context != null) {
+                context.close();
+            }
+        }
+        FileSystemUtils.deleteRecursively(archiveDir.toFile());
+    }
+
+    // Passed as command line arguments so they override each service's application.properties
+    private String[] arguments(String service, EmbeddedInfrastructure infrastructure, Map<String, String> extra) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.config.location", "classpath:/" + service + "/");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.main.log-startup-info", "false");
+        properties.put("server.port", "0");
+        properties.put("spring.kafka.bootstrap-servers", infrastructure.kafkaBootstrapServers());
+        properties.put("spring.data.redis.host", infrastructure.redisHost());
+        properties.put("spring.data.redis.port", String.valueOf(infrastructure.redisPort()));
+        properties.put("sensor.archive.dir", archiveDir.toString());
+        // The profiling endpoint is not used; setting a password keeps the generated one out of the log
+        properties.put("spring.security.user.password", UUID.randomUUID().toString());
+        // Logging is shared by the contexts; per-reading logs would measure the console
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.producer", "WARN");
+        properties.put("logging.level.com.example.consumer", "WARN");
+        properties.put("logging.level.com.example.api", "WARN");
+        properties.put("logging.level.com.example.benchmark", "INFO");
+        properties.putAll(extra);
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+}
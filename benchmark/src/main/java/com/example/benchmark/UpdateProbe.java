@@ -0,0 +1,37 @@
+package com.example.benchmark;
+
+import com.example.api.model.SensorReading;
+import com.example.api.service.SensorUpdateListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Registered with the api-service's update subscriber next to its read models.
+ * Every service shares this JVM's clock, so the time from a reading's
+ * generation in the producer until it reaches here is the exact
+ * ingest-to-queryable latency.
+ */
+public class UpdateProbe implements SensorUpdateListener {
+
+    private volatile LatencyRecorder recorder;
+
+    @Override
+    public void onSensorUpdate(SensorReading reading) {
+        LatencyRecorder current = recorder;
+        if (current != null && reading.getTimestamp() != null) {
+            current.record(Duration.between(reading.getTimestamp(), LocalDateTime.now()).toNanos());
+        }
+    }
+
+    // Records into a fresh recorder until stop
+    public LatencyRecorder start() {
+        LatencyRecorder started = new LatencyRecorder();
+        recorder = started;
+        return started;
+    }
+
+    public void stop() {
+        recorder = null;
+    }
+}
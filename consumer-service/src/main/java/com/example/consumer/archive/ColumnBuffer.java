@@ -0,0 +1,69 @@
+package com.example.consumer.archive;
+
+import com.example.consumer.model.SensorReading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Readings of one hour waiting to be written as a segment, held as growable
+ * primitive columns with dictionary-encoded strings. Not thread-safe.
+ */
+public class ColumnBuffer {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    long[] timestamps = new long[INITIAL_CAPACITY];
+    double[] temperatures = new double[INITIAL_CAPACITY];
+    double[] pressures = new double[INITIAL_CAPACITY];
+    int[] sensorIds = new int[INITIAL_CAPACITY];
+    int[] locations = new int[INITIAL_CAPACITY];
+    int[] sensorTypes = new int[INITIAL_CAPACITY];
+    int size;
+
+    final Dictionary sensorIdDictionary = new Dictionary();
+    final Dictionary locationDictionary = new Dictionary();
+    final Dictionary sensorTypeDictionary = new Dictionary();
+
+    public void add(long timestamp, SensorReading reading) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            temperatures = Arrays.copyOf(temperatures, capacity);
+            pressures = Arrays.copyOf(pressures, capacity);
+            sensorIds = Arrays.copyOf(sensorIds, capacity);
+            locations = Arrays.copyOf(locations, capacity);
+            sensorTypes = Arrays.copyOf(sensorTypes, capacity);
+        }
+        timestamps[size] = timestamp;
+        temperatures[size] = reading.getTemperature();
+        pressures[size] = reading.getPressure();
+        sensorIds[size] = sensorIdDictionary.encode(reading.getSensorId());
+        locations[size] = locationDictionary.encode(reading.getLocation());
+        sensorTypes[size] = sensorTypeDictionary.encode(reading.getSensorType());
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    static class Dictionary {
+
+        private static final String UNKNOWN = "unknown";
+
+        final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        int encode(String value) {
+            String key = value == null || value.isEmpty() ? UNKNOWN : value;
+            return codes.computeIfAbsent(key, k -> {
+                values.add(k);
+                return values.size() - 1;
+            });
+        }
+    }
+}
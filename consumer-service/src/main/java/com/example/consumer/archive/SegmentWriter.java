@@ -0,0 +1,125 @@
+package com.example.consumer.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a {@link ColumnBuffer} as a segment file in the {@link SegmentFormat}
+ * layout. The file is written under a temporary name and renamed into place,
+ * so readers never see a partial segment.
+ */
+public final class SegmentWriter {
+
+    private SegmentWriter() {
+    }
+
+    public static void write(ColumnBuffer buffer, Path target) throws IOException {
+        int rows = buffer.size;
+        // Sorted by time so the timestamp deltas are small and compress well
+        int[] order = IntStream.range(0, rows).boxed()
+                .sorted(Comparator.comparingLong(row -> buffer.timestamps[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        byte[][] columns = {
+                compress(out -> {
+                    long previous = 0;
+                    for (int row : order) {
+                        out.writeLong(buffer.timestamps[row] - previous);
+                        previous = buffer.timestamps[row];
+                    }
+                }),
+                compress(out -> {
+                    for (int row : order) {
+                        out.writeDouble(buffer.temperatures[row]);
+                    }
+                }),
+                compress(out -> {
+                    for (int row : order) {
+                        out.writeDouble(buffer.pressures[row]);
+                    }
+                }),
+                compress(out -> writeCodes(out, buffer.sensorIds, order)),
+                compress(out -> writeCodes(out, buffer.locations, order)),
+                compress(out -> writeCodes(out, buffer.sensorTypes, order))
+        };
+
+        Files.createDirectories(target.getParent());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(SegmentFormat.MAGIC);
+            out.writeShort(SegmentFormat.VERSION);
+            out.writeInt(rows);
+            out.writeLong(buffer.timestamps[order[0]]);
+            out.writeLong(buffer.timestamps[order[rows - 1]]);
+            writeRange(out, Arrays.copyOf(buffer.temperatures, rows));
+            writeRange(out, Arrays.copyOf(buffer.pressures, rows));
+            writeDictionary(out, buffer.sensorIdDictionary.values);
+            writeDictionary(out, buffer.locationDictionary.values);
+            writeDictionary(out, buffer.sensorTypeDictionary.values);
+            for (byte[] column : columns) {
+                out.writeInt(column.length);
+            }
+            for (byte[] column : columns) {
+                out.write(column);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeRange(DataOutputStream out, double[] values) throws IOException {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            if (Double.isFinite(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    private static void writeDictionary(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeCodes(DataOutputStream out, int[] codes, int[] order) throws IOException {
+        for (int row : order) {
+            out.writeInt(codes[row]);
+        }
+    }
+
+    private static byte[] compress(ColumnEncoder encoder) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 8192))) {
+            encoder.encode(out);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface ColumnEncoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.consumer.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    // Latest reading per sensor, keyed by sensor id; compaction keeps only the newest record per key,
+    // so reading the topic from the start rebuilds the current state of the fleet
+    @Bean
+    public NewTopic latestStateTopic(@Value("${sensor.latest-state.topic}") String topic,
+                                     @Value("${sensor.latest-state.partitions}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .replicas(1)
+                .compact()
+                .config(TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG, "0.1")
+                .config(TopicConfig.SEGMENT_MS_CONFIG, "600000")
+                .build();
+    }
+}
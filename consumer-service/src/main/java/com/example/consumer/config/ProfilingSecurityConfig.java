@@ -0,0 +1,30 @@
+package com.example.consumer.config;
+
+import com.example.consumer.profiling.JfrRecordingEndpoint;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Puts the JFR recording endpoint behind HTTP Basic for the user in
+ * spring.security.user.* (role PROFILER). This is the only filter chain, so
+ * every other request is served without authentication as before.
+ */
+@Configuration
+public class ProfilingSecurityConfig {
+
+    @Bean
+    public SecurityFilterChain profilingSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(EndpointRequest.to(JfrRecordingEndpoint.class))
+                .authorizeHttpRequests(requests -> requests.anyRequest().hasRole("PROFILER"))
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.consumer.controller;
 
+import com.example.consumer.service.ReadingArchiver;
 import com.example.consumer.service.SensorDataConsumer;
+import com.example.consumer.service.SensorStateRestorer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,12 +21,23 @@ public class HealthController {
     @Autowired
     private SensorDataConsumer sensorDataConsumer;
 
+    @Autowired
+    private SensorStateRestorer sensorStateRestorer;
+
+    @Autowired
+    private ReadingArchiver readingArchiver;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> health = new HashMap<>();
         health.put("status", "UP");
         health.put("service", "consumer-service");
         health.put("messagesProcessed", sensorDataConsumer.getProcessedMessageCount());
+        health.put("ready", sensorStateRestorer.getReadyMillis() >= 0);
+        health.put("readyAfterMillis", sensorStateRestorer.getReadyMillis());
+        health.put("restoredSensors", sensorStateRestorer.getRestoredSensors());
+        health.put("firstReadingMillis", sensorDataConsumer.getFirstReadingMillis());
+        health.put("archivedReadings", readingArchiver.getArchivedReadingCount());
         health.put("timestamp", System.currentTimeMillis());
         
         log.debug("Health check requested - Messages processed: {}", 
@@ -0,0 +1,24 @@
+package com.example.consumer.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.consumer.ReadingDecode")
+@Label("Reading Decode")
+@Category({"Sensor Pipeline", "Consumer"})
+@Description("Parsing one reading from its Kafka message and serializing it for storage")
+@StackTrace(false)
+@Setter
+public class ReadingDecodeEvent extends Event {
+
+    @Label("Sensor ID")
+    private String sensorId;
+
+    @Label("Message Length")
+    private int messageLength;
+}
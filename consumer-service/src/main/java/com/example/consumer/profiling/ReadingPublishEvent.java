@@ -0,0 +1,21 @@
+package com.example.consumer.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.consumer.ReadingPublish")
+@Label("Reading Publish")
+@Category({"Sensor Pipeline", "Consumer"})
+@Description("Handing a stored reading to the latest-state topic and the archive")
+@StackTrace(false)
+@Setter
+public class ReadingPublishEvent extends Event {
+
+    @Label("Sensor ID")
+    private String sensorId;
+}
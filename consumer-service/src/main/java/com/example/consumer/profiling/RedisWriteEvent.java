@@ -0,0 +1,27 @@
+package com.example.consumer.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.consumer.RedisWrite")
+@Label("Redis Write")
+@Category({"Sensor Pipeline", "Consumer"})
+@Description("Storing, indexing and publishing one reading in Redis")
+@StackTrace(false)
+@Setter
+public class RedisWriteEvent extends Event {
+
+    @Label("Sensor ID")
+    private String sensorId;
+
+    @Label("Shard")
+    private String shard;
+
+    @Label("Shard Data Version")
+    private long version;
+}
@@ -0,0 +1,43 @@
+package com.example.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes every stored reading to the log-compacted latest-state topic,
+ * keyed by sensor id, so the current state of the fleet survives a Redis
+ * flush and read models can be rebuilt without scanning Redis.
+ *
+ * Sends are asynchronous; a failed send is logged and counted, and the
+ * sensor's next reading replaces it anyway.
+ */
+@Service
+@Slf4j
+public class LatestStatePublisher {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${sensor.latest-state.topic}")
+    private String latestStateTopic;
+
+    private final AtomicLong failedSends = new AtomicLong();
+
+    public void publish(String sensorId, String jsonValue) {
+        kafkaTemplate.send(latestStateTopic, sensorId, jsonValue).whenComplete((result, e) -> {
+            if (e != null && failedSends.incrementAndGet() % 1000 == 1) {
+                log.warn("Failed to publish latest state for sensor {} ({} failures so far): {}",
+                        sensorId, failedSends.get(), e.getMessage());
+            }
+        });
+    }
+
+    public long getFailedSendCount() {
+        return failedSends.get();
+    }
+}
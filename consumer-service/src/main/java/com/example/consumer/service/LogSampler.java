@@ -0,0 +1,59 @@
+package com.example.consumer.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which of a stream of per-message log lines are written: one in
+ * every sampleRate calls, and never more than maxPerSecond lines in a
+ * second. The calls skipped since the last written line are counted so the
+ * line can report them. Lock-free; a call that is not sampled costs one
+ * atomic increment.
+ *
+ * The current second and the lines written in it share one atomic long
+ * (second in the high 32 bits, count in the low), so the per-second reset and
+ * the count cannot interleave: the first line of a new second replaces both
+ * at once. A caller that read the clock just before another moved it on
+ * counts against the newer second rather than going back to its own.
+ */
+public class LogSampler {
+
+    private final long sampleRate;
+    private final int maxPerSecond;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong writtenThisSecond = new AtomicLong();
+    private final LongSupplier clock;
+
+    public LogSampler(long sampleRate, int maxPerSecond) {
+        this(sampleRate, maxPerSecond, System::currentTimeMillis);
+    }
+
+    // clock returns epoch millis
+    LogSampler(long sampleRate, int maxPerSecond, LongSupplier clock) {
+        this.sampleRate = Math.max(1, sampleRate);
+        this.maxPerSecond = maxPerSecond;
+        this.clock = clock;
+    }
+
+    // True if this call's line should be written
+    public boolean sample() {
+        if (calls.incrementAndGet() % sampleRate != 0) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        long second = clock.getAsLong() / 1000;
+        long written = writtenThisSecond.updateAndGet(current ->
+                current >>> 32 >= second ? current + 1 : second << 32 | 1);
+        if ((written & 0xffffffffL) > maxPerSecond) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // Calls skipped since the previous call to this method
+    public long takeSkipped() {
+        return skipped.getAndSet(0);
+    }
+}
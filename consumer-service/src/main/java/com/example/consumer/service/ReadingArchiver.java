@@ -0,0 +1,176 @@
+package com.example.consumer.service;
+
+import com.example.consumer.archive.ColumnBuffer;
+import com.example.consumer.archive.SegmentFormat;
+import com.example.consumer.archive.SegmentWriter;
+import com.example.consumer.model.SensorReading;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps readings beyond the Redis TTL by rolling them into immutable,
+ * compressed, columnar segment files on local disk, partitioned by hour
+ * (see {@link SegmentFormat}).
+ *
+ * Readings are buffered per hour in memory; a buffer becomes a segment once
+ * it holds segment-rows readings or at the next flush interval, so at most one
+ * flush interval of readings is lost if the process dies. Hour partitions
+ * older than the retention are deleted.
+ */
+@Service
+@Slf4j
+public class ReadingArchiver {
+
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    @Value("${sensor.archive.enabled}")
+    private boolean enabled;
+
+    @Value("${sensor.archive.dir}")
+    private String archiveDir;
+
+    @Value("${sensor.archive.segment-rows}")
+    private int segmentRows;
+
+    @Value("${sensor.archive.retention}")
+    private Duration retention;
+
+    // Hour start (epoch millis) -> readings of that hour not yet written
+    private final Map<Long, ColumnBuffer> buffers = new HashMap<>();
+    private final AtomicLong segmentSequence = new AtomicLong();
+    private final AtomicLong archivedReadings = new AtomicLong();
+
+    public void append(SensorReading reading) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = reading.getTimestamp() == null
+                ? System.currentTimeMillis()
+                : reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long hourStart = timestamp - Math.floorMod(timestamp, HOUR_MILLIS);
+
+        ColumnBuffer full = null;
+        synchronized (buffers) {
+            ColumnBuffer buffer = buffers.computeIfAbsent(hourStart, hour -> new ColumnBuffer());
+            buffer.add(timestamp, reading);
+            if (buffer.size() >= segmentRows) {
+                full = buffers.remove(hourStart);
+            }
+        }
+        if (full != null) {
+            writeSegment(hourStart, full);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sensor.archive.flush-interval}")
+    @PreDestroy
+    public void flush() {
+        Map<Long, ColumnBuffer> pending;
+        synchronized (buffers) {
+            pending = new HashMap<>(buffers);
+            buffers.clear();
+        }
+        pending.forEach(this::writeSegment);
+    }
+
+    public long getArchivedReadingCount() {
+        return archivedReadings.get();
+    }
+
+    // Delete hour partitions that ended before the retention cutoff, and emptied day directories
+    @Scheduled(fixedDelayString = "${sensor.archive.cleanup-interval}")
+    public void deleteExpiredPartitions() {
+        Path root = Paths.get(archiveDir);
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        try (Stream<Path> days = Files.list(root)) {
+            for (Path day : days.toList()) {
+                LocalDate date = parseDay(day);
+                if (date == null) {
+                    continue;
+                }
+                try (Stream<Path> hours = Files.list(day)) {
+                    for (Path hour : hours.toList()) {
+                        Instant end = partitionEnd(date, hour);
+                        if (end != null && end.isBefore(cutoff)) {
+                            deleteRecursively(hour);
+                            log.info("Deleted archive partition {}", root.relativize(hour));
+                        }
+                    }
+                }
+                try (Stream<Path> remaining = Files.list(day)) {
+                    if (remaining.findAny().isEmpty()) {
+                        Files.delete(day);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error deleting expired archive partitions: {}", e.getMessage());
+        }
+    }
+
+    // Null for anything in the archive root that is not a day partition
+    private static LocalDate parseDay(Path day) {
+        try {
+            return Files.isDirectory(day) ? LocalDate.parse(day.getFileName().toString()) : null;
+        } catch (DateTimeParseException e) {
+            log.warn("Skipping unexpected archive entry {}", day);
+            return null;
+        }
+    }
+
+    // End of an hour partition (partitions are UTC hours), or null if hour is not one
+    private static Instant partitionEnd(LocalDate date, Path hour) {
+        try {
+            LocalTime start = LocalTime.of(Integer.parseInt(hour.getFileName().toString()), 0);
+            return date.atTime(start).plusHours(1).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeException | NumberFormatException e) {
+            log.warn("Skipping unexpected archive entry {}", hour);
+            return null;
+        }
+    }
+
+    private void writeSegment(long hourStart, ColumnBuffer buffer) {
+        Path target = Paths.get(archiveDir, SegmentFormat.partition(hourStart),
+                System.currentTimeMillis() + "-" + segmentSequence.incrementAndGet() + SegmentFormat.EXTENSION);
+        try {
+            long start = System.currentTimeMillis();
+            SegmentWriter.write(buffer, target);
+            archivedReadings.addAndGet(buffer.size());
+            log.debug("Archived {} readings to {} in {} ms", buffer.size(), target, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("Error writing archive segment {}: {}", target, e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path each : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(each);
+            }
+        }
+    }
+}
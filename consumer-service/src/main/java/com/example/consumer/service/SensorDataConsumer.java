@@ -1,13 +1,18 @@
 package com.example.consumer.service;
 
 import com.example.consumer.model.SensorReading;
+import com.example.consumer.profiling.ReadingDecodeEvent;
+import com.example.consumer.profiling.ReadingPublishEvent;
+import com.example.consumer.sharding.RedisShards;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
@@ -16,21 +21,51 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 public class SensorDataConsumer {
 
+    // Started by SensorStateRestorer once Redis holds the latest known state
+    public static final String LISTENER_ID = "sensor-readings";
+
+    // Set by the producer-service to the epoch millis at which the reading was generated
+    public static final String ORIGIN_TIMESTAMP_HEADER = "sensor-origin-ts";
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private SensorStateWriter sensorStateWriter;
+
+    @Autowired
+    private LatestStatePublisher latestStatePublisher;
+
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private ReadingArchiver readingArchiver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Value("${sensor.redis.key-prefix}")
     private String redisKeyPrefix;
 
+    @Value("${sensor.reading-log.sample-rate}")
+    private long readingLogSampleRate;
+
+    @Value("${sensor.reading-log.max-per-second}")
+    private int readingLogMaxPerSecond;
+
     private final ObjectMapper objectMapper;
     private final AtomicLong processedMessages = new AtomicLong(0);
+    private Timer processTimer;
+    private Timer ingestLatency;
+    private volatile double firstReadingMillis = -1;
+    private LogSampler readingLog;
+    private LogSampler errorLog;
 
     public SensorDataConsumer() {
         this.objectMapper = new ObjectMapper();
@@ -39,43 +74,112 @@ public class SensorDataConsumer {
 
     @PostConstruct
     public void init() {
+        processTimer = Timer.builder("sensor.consumer.process")
+                .description("Time to parse, store, publish and archive one reading")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // From generation in the producer-service until the reading is stored and published to readers;
+        // compares clocks of two hosts, so only as accurate as their synchronisation
+        ingestLatency = Timer.builder("sensor.ingest.latency")
+                .description("End-to-end time from reading generation until it is readable in Redis")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // What the first reading after startup cost, i.e. whatever the warm-up left cold
+        TimeGauge.builder("sensor.startup.first.reading", this, TimeUnit.MILLISECONDS, consumer -> consumer.firstReadingMillis)
+                .description("Time to process the first reading after startup").register(meterRegistry);
+        readingLog = new LogSampler(readingLogSampleRate, readingLogMaxPerSecond);
+        errorLog = new LogSampler(1, readingLogMaxPerSecond);
         log.info("Sensor Data Consumer initialized with Redis key prefix: {}", redisKeyPrefix);
     }
 
-    @KafkaListener(topics = "${sensor.topic}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(id = LISTENER_ID, topics = "${sensor.topic}", groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "false")
     public void consumeSensorData(
             @Payload String message,
             @Header(KafkaHeaders.RECEIVED_KEY) String key,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-            @Header(KafkaHeaders.OFFSET) long offset) {
+            @Header(KafkaHeaders.OFFSET) long offset,
+            @Header(name = ORIGIN_TIMESTAMP_HEADER, required = false) byte[] originTimestamp) {
 
+        long start = System.nanoTime();
         try {
             log.debug("Received message from topic: {}, partition: {}, offset: {}, key: {}", 
                      topic, partition, offset, key);
 
             // Parse the JSON and store in Redis
+            ReadingDecodeEvent decodeEvent = new ReadingDecodeEvent();
+            decodeEvent.begin();
             SensorReading sensorReading = objectMapper.readValue(message, SensorReading.class);
-            
-            String redisKey = redisKeyPrefix + sensorReading.getSensorId();
-            
-            // Store data in Redis (expires after 1 hour)
             String jsonValue = objectMapper.writeValueAsString(sensorReading);
-            redisTemplate.opsForValue().set(redisKey, jsonValue, Duration.ofHours(1));
+            decodeEvent.end();
+            if (decodeEvent.shouldCommit()) {
+                decodeEvent.setSensorId(sensorReading.getSensorId());
+                decodeEvent.setMessageLength(message.length());
+                decodeEvent.commit();
+            }
+            
+            // Store data in Redis (expires after sensor.redis.ttl) and update the sensor index
+            sensorStateWriter.write(sensorReading, jsonValue);
+
+            ReadingPublishEvent publishEvent = new ReadingPublishEvent();
+            publishEvent.begin();
+            latestStatePublisher.publish(sensorReading.getSensorId(), jsonValue);
+            readingArchiver.append(sensorReading);
+            publishEvent.end();
+            if (publishEvent.shouldCommit()) {
+                publishEvent.setSensorId(sensorReading.getSensorId());
+                publishEvent.commit();
+            }
+            recordIngestLatency(originTimestamp);
             
             long messageCount = processedMessages.incrementAndGet();
             
-            log.info("Saved sensor data - Key: {}, Sensor: {}, Temp: {}°C, Pressure: {}hPa, Total processed: {}", 
-                    redisKey, 
-                    sensorReading.getSensorId(), 
-                    sensorReading.getTemperature(), 
-                    sensorReading.getPressure(),
-                    messageCount);
+            // Sampled: a line per message costs more than the rest of the work at full ingest rate
+            if (readingLog.sample()) {
+                log.info("event=reading_saved sensorId={} temperature={} pressure={} partition={} offset={} processed={} unlogged={}",
+                        sensorReading.getSensorId(),
+                        sensorReading.getTemperature(),
+                        sensorReading.getPressure(),
+                        partition,
+                        offset,
+                        messageCount,
+                        readingLog.takeSkipped());
+            }
 
         } catch (JsonProcessingException e) {
-            log.error("Error reading JSON: {} - Message: {}", e.getMessage(), message);
+            if (errorLog.sample()) {
+                log.error("event=reading_malformed partition={} offset={} error=\"{}\" unlogged={} message={}",
+                        partition, offset, e.getOriginalMessage(), errorLog.takeSkipped(), message);
+            }
         } catch (Exception e) {
-            log.error("Error processing message: {} - Message: {}", e.getMessage(), message);
+            if (errorLog.sample()) {
+                log.error("event=reading_failed partition={} offset={} error=\"{}\" unlogged={} message={}",
+                        partition, offset, e.getMessage(), errorLog.takeSkipped(), message);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            processTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (firstReadingMillis < 0) {
+                firstReadingMillis = elapsed / 1_000_000.0;
+                log.info("First reading processed in {} ms", Math.round(firstReadingMillis));
+            }
+        }
+    }
+
+    private void recordIngestLatency(byte[] originTimestamp) {
+        if (originTimestamp == null) {
+            // Produced by a client that does not stamp the origin
+            return;
+        }
+        try {
+            long originMillis = Long.parseLong(new String(originTimestamp, StandardCharsets.UTF_8));
+            long latency = System.currentTimeMillis() - originMillis;
+            if (latency >= 0) {
+                ingestLatency.record(latency, TimeUnit.MILLISECONDS);
+            }
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed {} header", ORIGIN_TIMESTAMP_HEADER);
         }
     }
 
@@ -83,7 +187,7 @@ public class SensorDataConsumer {
     public SensorReading getLatestSensorReading(String sensorId) {
         try {
             String redisKey = redisKeyPrefix + sensorId;
-            Object value = redisTemplate.opsForValue().get(redisKey);
+            Object value = redisShards.templateFor(sensorId).opsForValue().get(redisKey);
             
             if (value != null) {
                 if (value instanceof SensorReading) {
@@ -101,12 +205,17 @@ public class SensorDataConsumer {
         }
     }
 
+    // -1 until the first reading has been processed
+    public double getFirstReadingMillis() {
+        return firstReadingMillis;
+    }
+
     public long getProcessedMessageCount() {
         return processedMessages.get();
     }
 
     public boolean sensorExists(String sensorId) {
         String redisKey = redisKeyPrefix + sensorId;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
+        return Boolean.TRUE.equals(redisShards.templateFor(sensorId).hasKey(redisKey));
     }
 }
@@ -0,0 +1,141 @@
+package com.example.consumer.service;
+
+import com.example.consumer.model.SensorReading;
+import com.example.consumer.sharding.RedisShard;
+import com.example.consumer.sharding.RedisShards;
+import com.example.consumer.startup.StartupWarmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings Redis back to the latest known state before the consumer starts
+ * taking readings from Kafka.
+ *
+ * The ingest hot paths are first warmed up by {@link StartupWarmup}. If the
+ * sensor index in Redis is empty (first start, or Redis was flushed)
+ * the latest-state topic is read in bulk and every reading younger than the
+ * Redis TTL is written back through {@link SensorStateWriter}, so api-service
+ * instances see the fleet again immediately instead of after each sensor's next
+ * reading. A restored reading keeps only the rest of its TTL, counted from when
+ * it was taken, so it does not outlive the one Redis lost. Only then is the reading listener started; the time from JVM start
+ * to that point is logged and reported on /health. With several Redis shards
+ * only the sensors of shards whose index is empty are restored.
+ */
+@Component
+@Slf4j
+public class SensorStateRestorer implements ApplicationRunner {
+
+    @Autowired
+    private LatestStateTopicReader latestStateTopicReader;
+
+    @Autowired
+    private SensorStateWriter sensorStateWriter;
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Value("${sensor.bootstrap.restore-redis}")
+    private boolean restoreRedis;
+
+    @Value("${sensor.bootstrap.timeout}")
+    private Duration timeout;
+
+    @Value("${sensor.redis.index-key}")
+    private String indexKey;
+
+    @Value("${sensor.redis.ttl}")
+    private Duration readingTtl;
+
+    private final ObjectMapper objectMapper;
+    private volatile long restoredSensors;
+    private volatile long readyMillis = -1;
+
+    public SensorStateRestorer() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        startupWarmup.warmUp();
+
+        if (restoreRedis) {
+            try {
+                restore();
+            } catch (Exception e) {
+                log.warn("Could not restore sensor state from Kafka, starting without it: {}", e.getMessage());
+            }
+        }
+
+        listenerRegistry.getListenerContainer(SensorDataConsumer.LISTENER_ID).start();
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Consumer ready {} ms after JVM start ({} sensors restored)", readyMillis, restoredSensors);
+    }
+
+    // -1 until the reading listener has started
+    public long getReadyMillis() {
+        return readyMillis;
+    }
+
+    public long getRestoredSensors() {
+        return restoredSensors;
+    }
+
+    private void restore() throws Exception {
+        Set<RedisShard> emptyShards = new HashSet<>();
+        long indexed = 0;
+        for (RedisShard shard : redisShards.all()) {
+            Long count = shard.getStringRedisTemplate().opsForZSet().zCard(indexKey);
+            if (count == null || count == 0) {
+                emptyShards.add(shard);
+            } else {
+                indexed += count;
+            }
+        }
+        if (emptyShards.isEmpty()) {
+            log.info("Redis holds {} sensors, no restore needed", indexed);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, String> latest = latestStateTopicReader.readAll(timeout);
+        LocalDateTime cutoff = LocalDateTime.now().minus(readingTtl);
+        long restored = 0;
+        for (String jsonValue : latest.values()) {
+            SensorReading reading = objectMapper.readValue(jsonValue, SensorReading.class);
+            // Would already have expired from Redis
+            if (reading.getTimestamp() != null && reading.getTimestamp().isBefore(cutoff)) {
+                continue;
+            }
+            // Its shard still holds its state
+            if (!emptyShards.contains(redisShards.forSensor(reading.getSensorId()))) {
+                continue;
+            }
+            sensorStateWriter.restore(reading, jsonValue);
+            restored++;
+        }
+        restoredSensors = restored;
+        log.info("Restored {} of {} sensors from the latest-state topic in {} ms",
+                restored, latest.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.consumer.service;
+
+import com.example.consumer.model.SensorReading;
+import com.example.consumer.profiling.RedisWriteEvent;
+import com.example.consumer.sharding.RedisShard;
+import com.example.consumer.sharding.RedisShards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Writes the latest reading for a sensor together with the sensor-id index
+ * the api-service reads instead of running KEYS over the whole keyspace.
+ *
+ * Index layout:
+ * - index key: sorted set with score 0 for every sensor, so members come back in
+ *   sensor-id order and can be paged with ZRANGEBYLEX
+ * - last-seen key: sorted set scored by the last ingest time, used to drop
+ *   sensors from the index once their reading has expired
+ * - version key: counter bumped on every change to the stored data (a write or
+ *   a prune), so readers can tell whether anything changed since they last looked
+ * - versions key: sorted set scored by the version of each sensor's last write;
+ *   doubles as the change log readers page through with ZRANGEBYSCORE
+ * - pruned-version key: data version of the last prune; a reader that last
+ *   synced before it may still hold sensors that are gone and needs a full reload
+ * - temperature and pressure index keys: sorted sets scored by each sensor's
+ *   latest value, so range queries are a ZRANGEBYSCORE instead of a full scan
+ *
+ * Every write is also published on the update channel as the reading JSON with
+ * its "version" added, so api-service instances can refresh their near-cache and
+ * data version without polling. A prune publishes just {"version": n}.
+ *
+ * With several Redis shards every key above lives on each shard for the
+ * sensors it holds, version and pruned-version included: a write's version is
+ * taken in the same script that indexes and publishes it, so on every shard
+ * versions are indexed and published strictly in order. Readers treat the
+ * data version as one counter per shard.
+ */
+@Service
+@Slf4j
+public class SensorStateWriter {
+
+    // Stores the reading, updates the index sets, value indexes and versions, then publishes the
+    // reading with its version; all in one atomic round trip
+    private static final String WRITE_SCRIPT =
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "redis.call('ZADD', KEYS[2], 0, ARGV[3]) " +
+            "redis.call('ZADD', KEYS[3], ARGV[4], ARGV[3]) " +
+            "local version = redis.call('INCR', KEYS[4]) " +
+            "redis.call('ZADD', KEYS[5], version, ARGV[3]) " +
+            "if ARGV[7] ~= '' then redis.call('ZADD', KEYS[6], ARGV[7], ARGV[3]) else redis.call('ZREM', KEYS[6], ARGV[3]) end " +
+            "if ARGV[8] ~= '' then redis.call('ZADD', KEYS[7], ARGV[8], ARGV[3]) else redis.call('ZREM', KEYS[7], ARGV[3]) end " +
+            "redis.call('PUBLISH', ARGV[5], string.sub(ARGV[6], 1, -2) .. ',\"version\":' .. version .. '}') " +
+            "return version";
+
+    // Removes up to ARGV[2] sensors last seen before ARGV[1] from the index sets and bumps the data
+    // version if any were removed, recording it as the pruned version
+    private static final String PRUNE_SCRIPT =
+            "local stale = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "for _, id in ipairs(stale) do " +
+            "  redis.call('ZREM', KEYS[1], id) " +
+            "  redis.call('ZREM', KEYS[2], id) " +
+            "  redis.call('ZREM', KEYS[3], id) " +
+            "  redis.call('ZREM', KEYS[6], id) " +
+            "  redis.call('ZREM', KEYS[7], id) " +
+            "end " +
+            "if #stale > 0 then " +
+            "  local version = redis.call('INCR', KEYS[4]) " +
+            "  redis.call('SET', KEYS[5], version) " +
+            "  redis.call('PUBLISH', ARGV[3], '{\"version\":' .. version .. '}') " +
+            "end " +
+            "return #stale";
+
+    private static final int PRUNE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sensor.redis.key-prefix}")
+    private String redisKeyPrefix;
+
+    @Value("${sensor.redis.index-key}")
+    private String indexKey;
+
+    @Value("${sensor.redis.last-seen-key}")
+    private String lastSeenKey;
+
+    @Value("${sensor.redis.version-key}")
+    private String versionKey;
+
+    @Value("${sensor.redis.versions-key}")
+    private String versionsKey;
+
+    @Value("${sensor.redis.pruned-version-key}")
+    private String prunedVersionKey;
+
+    @Value("${sensor.redis.temperature-index-key}")
+    private String temperatureIndexKey;
+
+    @Value("${sensor.redis.pressure-index-key}")
+    private String pressureIndexKey;
+
+    @Value("${sensor.redis.ttl}")
+    private Duration readingTtl;
+
+    @Value("${sensor.redis.update-channel}")
+    private String updateChannel;
+
+    private final DefaultRedisScript<Long> writeScript = new DefaultRedisScript<>(WRITE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> pruneScript = new DefaultRedisScript<>(PRUNE_SCRIPT, Long.class);
+
+    private Timer writeTimer;
+
+    @PostConstruct
+    public void init() {
+        writeTimer = Timer.builder("sensor.consumer.redis.write")
+                .description("Round trip of the script storing and publishing one reading")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Store the reading, update the index and versions and publish the update in one round trip;
+    // returns the new data version of the sensor's shard
+    public long write(SensorReading reading, String jsonValue) {
+        return write(reading, jsonValue, readingTtl.toMillis(), System.currentTimeMillis());
+    }
+
+    // Write back a reading restored from the latest-state topic: it keeps only what is left of its
+    // TTL and counts as last seen when it was taken, so it expires and is pruned as it would have
+    // been had Redis never lost it
+    public long restore(SensorReading reading, String jsonValue) {
+        long now = System.currentTimeMillis();
+        long takenAt = reading.getTimestamp() != null
+                ? Math.min(now, reading.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                : now;
+        // PX needs a positive TTL; the restorer already skips readings that have expired
+        long remainingTtl = Math.max(1, readingTtl.toMillis() - (now - takenAt));
+        return write(reading, jsonValue, remainingTtl, takenAt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long write(SensorReading reading, String jsonValue, long ttlMillis, long lastSeenMillis) {
+        String sensorId = reading.getSensorId();
+        RedisShard shard = redisShards.forSensor(sensorId);
+        byte[] value = ((RedisSerializer<Object>) shard.getRedisTemplate().getValueSerializer()).serialize(jsonValue);
+
+        RedisWriteEvent event = new RedisWriteEvent();
+        event.begin();
+        Long version = writeTimer.record(() -> shard.getStringRedisTemplate().execute(writeScript,
+                List.of(redisKeyPrefix + sensorId, indexKey, lastSeenKey, versionKey, versionsKey,
+                        temperatureIndexKey, pressureIndexKey),
+                new String(value, StandardCharsets.UTF_8),
+                String.valueOf(ttlMillis),
+                sensorId,
+                String.valueOf(lastSeenMillis),
+                updateChannel,
+                jsonValue,
+                score(reading.getTemperature()),
+                score(reading.getPressure())));
+        event.end();
+        if (event.shouldCommit()) {
+            event.setSensorId(sensorId);
+            event.setShard(shard.getName());
+            event.setVersion(version != null ? version : 0);
+            event.commit();
+        }
+        return version != null ? version : 0;
+    }
+
+    // Connect to every shard and load the scripts there, so the first write is a plain EVALSHA
+    public void loadScripts() {
+        for (RedisShard shard : redisShards.all()) {
+            shard.getStringRedisTemplate().execute((RedisCallback<Void>) connection -> {
+                for (DefaultRedisScript<Long> script : List.of(writeScript, pruneScript)) {
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        }
+    }
+
+    // Drop sensors whose reading has expired from the index
+    @Scheduled(fixedDelayString = "${sensor.index.prune-interval}")
+    public void pruneExpiredSensors() {
+        try {
+            String cutoff = String.valueOf(System.currentTimeMillis() - readingTtl.toMillis());
+            long total = 0;
+            for (RedisShard shard : redisShards.all()) {
+                Long removed;
+                do {
+                    removed = shard.getStringRedisTemplate().execute(pruneScript,
+                            List.of(lastSeenKey, indexKey, versionsKey, versionKey, prunedVersionKey,
+                                    temperatureIndexKey, pressureIndexKey),
+                            cutoff, String.valueOf(PRUNE_BATCH_SIZE), updateChannel);
+                    total += removed != null ? removed : 0;
+                } while (removed != null && removed == PRUNE_BATCH_SIZE);
+            }
+
+            if (total > 0) {
+                log.info("Removed {} expired sensors from index", total);
+            }
+        } catch (Exception e) {
+            log.error("Error pruning sensor index: {}", e.getMessage());
+        }
+    }
+
+    // Values that cannot be a sorted-set score are left out of the value indexes
+    private static String score(double value) {
+        return Double.isFinite(value) ? String.valueOf(value) : "";
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.consumer.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of keys onto nodes. Every node is placed at virtualNodes
+ * points of a 64-bit ring, hashed from its name and the point number, and a
+ * key belongs to the node owning the first point at or after the key's hash,
+ * wrapping around at the end. Adding a node therefore only moves the keys that
+ * now fall just before one of its points (about 1/(n+1) of them, all to the
+ * new node), and the many points per node keep every node's share even.
+ *
+ * The hash is FNV-1a over the UTF-8 bytes followed by the MurmurHash3
+ * finaliser. It must not change: the api-service looks sensors up with the
+ * same ring and both have to agree on every key.
+ */
+public class ConsistentHashRing<T> {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] points;
+    private final List<T> owners;
+
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+
+        // Nodes are placed in name order so a point two nodes hash to goes to the same one everywhere
+        TreeMap<Long, T> ring = new TreeMap<>();
+        new TreeMap<>(nodes).forEach((name, node) -> {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(name + "#" + i), node);
+            }
+        });
+
+        this.points = new long[ring.size()];
+        this.owners = new ArrayList<>(ring.size());
+        int index = 0;
+        for (Map.Entry<Long, T> point : ring.entrySet()) {
+            points[index++] = point.getKey();
+            owners.add(point.getValue());
+        }
+    }
+
+    public T nodeFor(String key) {
+        long hash = hash(key);
+        int low = 0;
+        int high = points.length;
+        // First point at or after the hash
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return owners.get(low == points.length ? 0 : low);
+    }
+
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.consumer.sharding;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * One Redis node holding part of the sensor state, with the clients for it.
+ * Its name (host:port) is what places it on the hash ring.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RedisShard {
+
+    private final String name;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.consumer.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where each sensor's state is written. Without sensor.redis.shards
+ * everything goes to the single node of spring.data.redis; with it, sensors
+ * are spread over the listed nodes by a {@link ConsistentHashRing} on the
+ * sensor id, the same way the api-service looks them up.
+ *
+ * A sensor's reading, its entries in the index sets and the version counters
+ * covering it all live on its shard, so a write touches one node only.
+ */
+@Slf4j
+public class RedisShards implements DisposableBean {
+
+    private final List<RedisShard> shards;
+    private final ConsistentHashRing<RedisShard> ring;
+    private final List<? extends DisposableBean> resources;
+
+    // resources are the connections created for the shards, released on shutdown
+    public RedisShards(List<RedisShard> shards, int virtualNodes, List<? extends DisposableBean> resources) {
+        Map<String, RedisShard> byName = new LinkedHashMap<>();
+        for (RedisShard shard : shards) {
+            if (byName.putIfAbsent(shard.getName(), shard) != null) {
+                throw new IllegalArgumentException("Redis shard listed twice: " + shard.getName());
+            }
+        }
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing<>(byName, virtualNodes);
+        this.resources = resources;
+    }
+
+    public List<RedisShard> all() {
+        return shards;
+    }
+
+    public RedisShard forSensor(String sensorId) {
+        return shards.size() == 1 ? shards.get(0) : ring.nodeFor(sensorId);
+    }
+
+    public RedisTemplate<String, Object> templateFor(String sensorId) {
+        return forSensor(sensorId).getRedisTemplate();
+    }
+
+    @Override
+    public void destroy() {
+        for (DisposableBean resource : resources) {
+            try {
+                resource.destroy();
+            } catch (Exception e) {
+                log.warn("Could not release Redis shard resource: {}", e.getMessage());
+            }
+        }
+    }
+}
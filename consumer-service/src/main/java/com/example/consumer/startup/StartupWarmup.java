@@ -0,0 +1,111 @@
+package com.example.consumer.startup;
+
+import com.example.consumer.model.SensorReading;
+import com.example.consumer.service.SensorStateWriter;
+import com.example.consumer.sharding.RedisShards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the ingest hot paths before the reading listener starts, so the first
+ * readings after a restart do not pay for class loading, JIT compilation and
+ * connection setup.
+ *
+ * Called by SensorStateRestorer before it restores Redis: parses and
+ * serializes readings the way the listener does, connects to every Redis
+ * shard and loads the write scripts there, and opens the Kafka producer used
+ * for the latest-state topic. Kafka is given at most the warm-up timeout.
+ *
+ * The fast-start build's CDS training run (sensor.startup.training-run=true)
+ * stops after the JSON part, which needs neither Redis nor Kafka: its classes
+ * are archived, the script loading and Kafka producer classes are not.
+ */
+@Component
+@Slf4j
+public class StartupWarmup {
+
+    @Autowired
+    private SensorStateWriter sensorStateWriter;
+
+    @Autowired
+    private RedisShards redisShards;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${sensor.warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${sensor.warmup.iterations}")
+    private int iterations;
+
+    @Value("${sensor.warmup.timeout}")
+    private Duration timeout;
+
+    @Value("${sensor.latest-state.topic}")
+    private String latestStateTopic;
+
+    @Value("${sensor.startup.training-run}")
+    private boolean trainingRun;
+
+    private final ObjectMapper objectMapper;
+
+    public StartupWarmup() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    // SensorStateRestorer is an application runner, so exiting here keeps the restore and the
+    // listener from ever starting in the training run
+    @EventListener
+    public void exitAfterTrainingRun(ApplicationStartedEvent event) throws Exception {
+        if (trainingRun) {
+            warmUpJson();
+            log.info("Training run parsed {} readings, exiting", iterations);
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            warmUpJson();
+            sensorStateWriter.loadScripts();
+            CompletableFuture.runAsync(() -> kafkaTemplate.partitionsFor(latestStateTopic))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Warm-up finished in {} ms ({} codec iterations, {} Redis shards)",
+                    (System.nanoTime() - start) / 1_000_000, iterations, redisShards.all().size());
+        } catch (Exception e) {
+            log.warn("Warm-up stopped early: {}", e.toString());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void warmUpJson() throws Exception {
+        RedisSerializer<Object> valueSerializer =
+                (RedisSerializer<Object>) redisShards.all().get(0).getRedisTemplate().getValueSerializer();
+        for (int i = 0; i < iterations; i++) {
+            SensorReading reading = new SensorReading(String.valueOf(100 + i % 100), "TEMP_PRESSURE",
+                    20 + i % 10, 1000 + i % 50, "warmup");
+            String message = objectMapper.writeValueAsString(reading);
+            String jsonValue = objectMapper.writeValueAsString(objectMapper.readValue(message, SensorReading.class));
+            valueSerializer.serialize(jsonValue);
+        }
+    }
+}
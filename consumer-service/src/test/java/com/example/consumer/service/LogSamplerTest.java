@@ -0,0 +1,106 @@
+package com.example.consumer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the hot-path log sampler
+ * one call in sampleRate is written, at most maxPerSecond a second, and the cap starts over every second
+ */
+class LogSamplerTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    void writes_one_call_in_sample_rate() {
+        LogSampler sampler = new LogSampler(4, 100, now::get);
+
+        long written = IntStream.range(0, 40).filter(i -> sampler.sample()).count();
+
+        assertEquals(10, written);
+        assertEquals(30, sampler.takeSkipped());
+    }
+
+    @Test
+    void caps_lines_per_second() {
+        LogSampler sampler = new LogSampler(1, 5, now::get);
+
+        long written = IntStream.range(0, 20).filter(i -> sampler.sample()).count();
+
+        assertEquals(5, written);
+        assertEquals(15, sampler.takeSkipped());
+    }
+
+    @Test
+    void cap_starts_over_in_the_next_second() {
+        LogSampler sampler = new LogSampler(1, 2, now::get);
+        sampler.sample();
+        sampler.sample();
+        assertFalse(sampler.sample());
+
+        now.addAndGet(999);
+        assertFalse(sampler.sample());
+
+        now.addAndGet(1);
+        assertTrue(sampler.sample());
+        assertTrue(sampler.sample());
+        assertFalse(sampler.sample());
+    }
+
+    @Test
+    void skipped_count_is_taken_once() {
+        LogSampler sampler = new LogSampler(2, 100, now::get);
+        sampler.sample();
+        sampler.sample();
+
+        assertEquals(1, sampler.takeSkipped());
+        assertEquals(0, sampler.takeSkipped());
+    }
+
+    @Test
+    void concurrent_callers_never_exceed_the_cap_across_a_second_change() throws Exception {
+        LogSampler sampler = new LogSampler(1, 50, now::get);
+        int threads = 8;
+        int callsPerThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] callers = new Future<?>[threads];
+            AtomicLong written = new AtomicLong();
+            for (int t = 0; t < threads; t++) {
+                callers[t] = pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < callsPerThread; i++) {
+                        if (sampler.sample()) {
+                            written.incrementAndGet();
+                        }
+                        // one caller moves the clock on mid-run, racing the others' resets
+                        if (i == callsPerThread / 2 && Thread.currentThread().getName().endsWith("-1")) {
+                            now.addAndGet(1000);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> caller : callers) {
+                caller.get(30, TimeUnit.SECONDS);
+            }
+
+            // at most two seconds' worth, and every call is either written or skipped
+            assertTrue(written.get() <= 100, "written " + written.get());
+            assertEquals((long) threads * callsPerThread, written.get() + sampler.takeSkipped());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
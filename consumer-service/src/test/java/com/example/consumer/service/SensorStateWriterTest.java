@@ -0,0 +1,143 @@
+package com.example.consumer.service;
+
+import com.example.consumer.model.SensorReading;
+import com.example.consumer.sharding.RedisShard;
+import com.example.consumer.sharding.RedisShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * tests for how writes and prunes version the data when sensors are sharded
+ * every shard numbers its own changes inside the script that makes them, so a
+ * version is never handed out before the write it belongs to is indexed,
+ * and restored readings expire as if they had been written when taken
+ */
+class SensorStateWriterTest {
+
+    private StringRedisTemplate first;
+    private StringRedisTemplate second;
+    private RedisShards redisShards;
+    private SensorStateWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        first = mock(StringRedisTemplate.class);
+        second = mock(StringRedisTemplate.class);
+        redisShards = new RedisShards(List.of(shard("redis-a:6379", first), shard("redis-b:6379", second)), 160, List.of());
+
+        writer = new SensorStateWriter();
+        ReflectionTestUtils.setField(writer, "redisShards", redisShards);
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "redisKeyPrefix", "sensor:");
+        ReflectionTestUtils.setField(writer, "indexKey", "sensor-index");
+        ReflectionTestUtils.setField(writer, "lastSeenKey", "sensor-last-seen");
+        ReflectionTestUtils.setField(writer, "versionKey", "sensor-version");
+        ReflectionTestUtils.setField(writer, "versionsKey", "sensor-versions");
+        ReflectionTestUtils.setField(writer, "prunedVersionKey", "sensor-pruned-version");
+        ReflectionTestUtils.setField(writer, "temperatureIndexKey", "sensor-temperature");
+        ReflectionTestUtils.setField(writer, "pressureIndexKey", "sensor-pressure");
+        ReflectionTestUtils.setField(writer, "readingTtl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(writer, "updateChannel", "sensor-updates");
+        writer.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void write_takes_its_version_in_the_script_on_the_sensors_shard() {
+        String sensorId = sensorOn(second);
+        when(second.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(7L);
+
+        long version = writer.write(new SensorReading(sensorId, "TEMP_PRESSURE", 21.0, 1000.0, "Location-1"), "{}");
+
+        ArgumentCaptor<RedisScript<Long>> script = ArgumentCaptor.forClass(RedisScript.class);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(second).execute(script.capture(), keys.capture(), args.capture());
+        assertEquals(7, version);
+        // the shard's own counter is bumped by the script that indexes and publishes the write
+        assertEquals("sensor-version", keys.getValue().get(3));
+        assertTrue(script.getValue().getScriptAsString().contains("redis.call('INCR', KEYS[4])"));
+        assertEquals(8, args.getValue().length);
+        // nothing is asked of any other node, before or after
+        verifyNoInteractions(first);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void restored_reading_keeps_the_rest_of_its_ttl_and_its_reading_time() {
+        String sensorId = sensorOn(first);
+        LocalDateTime takenAt = LocalDateTime.now().minusMinutes(20);
+        long takenAtMillis = takenAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        when(first.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        writer.restore(new SensorReading(sensorId, "TEMP_PRESSURE", 21.0, 1000.0, takenAt, "Location-1"), "{}");
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(first).execute(any(RedisScript.class), anyList(), args.capture());
+        // PX is what is left of the hour, not a fresh hour
+        long ttl = Long.parseLong((String) args.getValue()[1]);
+        assertTrue(ttl <= Duration.ofMinutes(40).toMillis() && ttl > Duration.ofMinutes(39).toMillis(), "ttl " + ttl);
+        // last seen when it was taken, so the prune drops it with its key
+        assertEquals(String.valueOf(takenAtMillis), args.getValue()[3]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void prune_versions_each_shard_in_its_own_script() {
+        when(first.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(3L);
+        when(second.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        writer.pruneExpiredSensors();
+
+        for (StringRedisTemplate shard : List.of(first, second)) {
+            ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+            verify(shard, times(1)).execute(any(RedisScript.class), keys.capture(), any(Object[].class));
+            assertEquals("sensor-version", keys.getValue().get(3));
+            assertEquals("sensor-pruned-version", keys.getValue().get(4));
+            verifyNoMoreInteractions(shard);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void full_prune_batches_are_repeated_on_the_same_shard() {
+        when(first.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1000L, 10L);
+        when(second.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        writer.pruneExpiredSensors();
+
+        verify(first, times(2)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(second, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    private String sensorOn(StringRedisTemplate template) {
+        return IntStream.range(100, 1000)
+                .mapToObj(String::valueOf)
+                .filter(id -> redisShards.forSensor(id).getStringRedisTemplate() == template)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisShard shard(String name, StringRedisTemplate stringRedisTemplate) {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) RedisSerializer.json());
+        return new RedisShard(name, stringRedisTemplate, redisTemplate);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.consumer.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests for the consistent hash ring the consumer writes with
+ * the api-service's test pins the same hashes and placements; if one side changes, both fail
+ */
+class ConsistentHashRingTest {
+
+    @Test
+    void hash_values_are_pinned() {
+        assertEquals(0xefd01f60ba992926L, ConsistentHashRing.hash(""));
+        assertEquals(0xe48ebf8a0c76ec30L, ConsistentHashRing.hash("101"));
+        assertEquals(0xcb9f3a32583a2c0eL, ConsistentHashRing.hash("sensor-42"));
+        assertEquals(0xf50b1f8e2c0682e6L, ConsistentHashRing.hash("caf\u00e9"));
+    }
+
+    @Test
+    void placements_are_pinned() {
+        ConsistentHashRing<String> ring = ring(3);
+
+        assertEquals("redis-3:6379", ring.nodeFor("100"));
+        assertEquals("redis-3:6379", ring.nodeFor("101"));
+        assertEquals("redis-1:6379", ring.nodeFor("103"));
+        assertEquals("redis-2:6379", ring.nodeFor("105"));
+        assertEquals("redis-2:6379", ring.nodeFor("250"));
+        assertEquals("redis-2:6379", ring.nodeFor("999"));
+    }
+
+    @Test
+    void a_single_node_owns_every_key() {
+        ConsistentHashRing<String> ring = ring(1);
+
+        assertEquals("redis-1:6379", ring.nodeFor("101"));
+        assertEquals("redis-1:6379", ring.nodeFor(""));
+    }
+
+    private static ConsistentHashRing<String> ring(int shards) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (int i = 1; i <= shards; i++) {
+            nodes.put("redis-" + i + ":6379", "redis-" + i + ":6379");
+        }
+        return new ConsistentHashRing<>(nodes, 160);
+    }
+}
@@ -56,6 +56,19 @@ const selectedApiUrl = USE_PROXY ? API_BASE_URL : DIRECT_API_BASE_URL;
 const selectedProducerUrl = USE_PROXY ? PRODUCER_BASE_URL : DIRECT_PRODUCER_BASE_URL;
 const selectedHealthUrls = USE_PROXY ? HEALTH_URLS : DIRECT_HEALTH_URLS;
 
+// /all and /list return one page at a time; follow the cursor until it runs out.
+// nextPage(response) gives the cursor for the following page, or nothing after the last one.
+const getAllPages = async (url, getItems, nextPage) => {
+  const items = [];
+  let cursor;
+  do {
+    const response = await axios.get(url, { params: cursor ? { cursor } : undefined });
+    items.push(...getItems(response));
+    cursor = nextPage(response);
+  } while (cursor);
+  return items;
+};
+
 // API Service calls
 export const apiService = {
   getLatestReading: async (sensorId) => {
@@ -66,8 +79,23 @@ export const apiService = {
   },
 
   getAllReadings: async () => {
-    const response = await axios.get(`${selectedApiUrl}/all`);
-    return response.data;
+    return getAllPages(
+      `${selectedApiUrl}/all`,
+      (response) => response.data,
+      (response) => response.headers['x-next-cursor']
+    );
+  },
+
+  // Live readings over Server-Sent Events: onSnapshot gets the full list once,
+  // onReadings only the sensors that changed. Returns the EventSource so callers can close it.
+  openReadingStream: (onSnapshot, onReadings, onError) => {
+    const source = new EventSource(`${selectedApiUrl}/stream`);
+    source.addEventListener('snapshot', (event) => onSnapshot(JSON.parse(event.data)));
+    source.addEventListener('readings', (event) => onReadings(JSON.parse(event.data)));
+    if (onError) {
+      source.onerror = onError;
+    }
+    return source;
   },
 
   getStatistics: async () => {
@@ -75,9 +103,18 @@ export const apiService = {
     return response.data;
   },
 
+  // Aggregates over recent reading history, e.g. { groupBy: 'time', window: '10m', interval: '1m' }
+  getAnalytics: async (params) => {
+    const response = await axios.get(`${selectedApiUrl}/analytics`, { params });
+    return response.data;
+  },
+
   getSensorList: async () => {
-    const response = await axios.get(`${selectedApiUrl}/list`);
-    return response.data.sensorIds;
+    return getAllPages(
+      `${selectedApiUrl}/list`,
+      (response) => response.data.sensorIds,
+      (response) => response.data.nextCursor
+    );
   },
 
   getServiceHealth: async (service) => {
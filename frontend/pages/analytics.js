@@ -16,25 +16,24 @@ const Analytics = () => {
 
   const fetchAnalytics = async () => {
     try {
-      const [stats, readings, producerHealth, consumerHealth, apiHealth] = await Promise.allSettled([
+      const [stats, readings, trend, producerHealth, consumerHealth, apiHealth] = await Promise.allSettled([
         apiService.getStatistics(),
         apiService.getAllReadings(),
+        apiService.getAnalytics({ groupBy: 'time', window: '10m', interval: '1m' }),
         apiService.getServiceHealth('producer'),
         apiService.getServiceHealth('consumer'),
         apiService.getServiceHealth('api')
       ]);
 
       if (stats.status === 'fulfilled') setStatistics(stats.value);
-      if (readings.status === 'fulfilled') {
-        setSensorData(readings.value);
-        // Simulate historical data for trends
-        const historical = readings.value.map((reading, index) => ({
-          time: new Date(Date.now() - (readings.value.length - index) * 60000).toLocaleTimeString(),
-          temperature: reading.temperature,
-          pressure: reading.pressure,
-          sensorId: reading.sensorId
-        }));
-        setHistoricalData(historical);
+      if (readings.status === 'fulfilled') setSensorData(readings.value);
+      if (trend.status === 'fulfilled') {
+        // Fleet average per minute over the last 10 minutes
+        setHistoricalData(trend.value.groups.map((bucket) => ({
+          time: new Date(bucket.key).toLocaleTimeString(),
+          temperature: bucket.temperature.avg,
+          pressure: bucket.pressure.avg
+        })));
       }
 
       setServices({
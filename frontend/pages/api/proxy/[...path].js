@@ -50,7 +50,8 @@ export default async function handler(req, res) {
             ...Object.fromEntries(
               Object.entries(req.headers).filter(([key, value]) => 
                 value !== undefined && 
-                !['x-forwarded-for', 'x-forwarded-proto', 'x-forwarded-host', 'connection'].includes(key.toLowerCase())
+                // The body is buffered and re-sent below, so ask for it uncompressed
+                !['x-forwarded-for', 'x-forwarded-proto', 'x-forwarded-host', 'connection', 'accept-encoding'].includes(key.toLowerCase())
               )
             ),
             host: url.host,
@@ -68,6 +69,16 @@ export default async function handler(req, res) {
             }
           });
           
+          // Stream Server-Sent Events straight through instead of buffering them
+          if ((proxyRes.headers['content-type'] || '').startsWith('text/event-stream')) {
+            proxyReq.setTimeout(0);
+            res.flushHeaders();
+            proxyRes.pipe(res);
+            req.on('close', () => proxyReq.destroy());
+            proxyRes.on('end', () => resolve());
+            return;
+          }
+          
           // Handle the response data
           let data = '';
           proxyRes.on('data', (chunk) => {
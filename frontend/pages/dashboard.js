@@ -11,6 +11,20 @@ const Dashboard = () => {
   const [chartData, setChartData] = useState([]);
   const [isAutoRefresh, setIsAutoRefresh] = useState(true);
 
+  const applyReadings = (readings) => {
+    setSensorData(readings);
+    setLastUpdate(new Date());
+    
+    // Prepare chart data
+    const chartPoints = readings.map(reading => ({
+      sensorId: reading.sensorId,
+      temperature: reading.temperature,
+      pressure: reading.pressure,
+      location: reading.location
+    }));
+    setChartData(chartPoints);
+  };
+
   const fetchData = async () => {
     try {
       const [readings, stats] = await Promise.all([
@@ -18,18 +32,8 @@ const Dashboard = () => {
         apiService.getStatistics()
       ]);
       
-      setSensorData(readings);
+      applyReadings(readings);
       setStatistics(stats);
-      setLastUpdate(new Date());
-      
-      // Prepare chart data
-      const chartPoints = readings.map(reading => ({
-        sensorId: reading.sensorId,
-        temperature: reading.temperature,
-        pressure: reading.pressure,
-        location: reading.location
-      }));
-      setChartData(chartPoints);
       
     } catch (error) {
       console.error('Failed to fetch data:', error);
@@ -38,14 +42,40 @@ const Dashboard = () => {
     }
   };
 
+  const fetchStatistics = async () => {
+    try {
+      setStatistics(await apiService.getStatistics());
+    } catch (error) {
+      console.error('Failed to fetch statistics:', error);
+    }
+  };
+
   useEffect(() => {
-    fetchData();
-    let interval;
-    if (isAutoRefresh) {
-      interval = setInterval(fetchData, 3000); // Refresh every 3 seconds
+    if (!isAutoRefresh) {
+      fetchData();
+      return undefined;
     }
+
+    // Readings are pushed by the API; only the small statistics payload is polled
+    let current = new Map();
+    const stream = apiService.openReadingStream(
+      (snapshot) => {
+        current = new Map(snapshot.map(reading => [reading.sensorId, reading]));
+        applyReadings(snapshot);
+        setLoading(false);
+      },
+      (changed) => {
+        changed.forEach(reading => current.set(reading.sensorId, reading));
+        applyReadings([...current.values()].sort((a, b) => a.sensorId.localeCompare(b.sensorId)));
+      },
+      (error) => console.error('Sensor stream error, reconnecting:', error)
+    );
+
+    fetchStatistics();
+    const interval = setInterval(fetchStatistics, 3000);
     return () => {
-      if (interval) clearInterval(interval);
+      stream.close();
+      clearInterval(interval);
     };
   }, [isAutoRefresh]);
 
@@ -116,7 +146,7 @@ const Dashboard = () => {
           </span>
           {isAutoRefresh && (
             <span className="ml-2 text-xs bg-green-100 text-green-800 px-2 py-0.5 rounded-full">
-              Refreshing every 3s
+              Live updates
             </span>
           )}
         </div>
@@ -0,0 +1,30 @@
+package com.example.producer.config;
+
+import com.example.producer.profiling.JfrRecordingEndpoint;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Only the profiling endpoint needs a login: the spring.security.user.*
+ * account with role PROFILER, over HTTP Basic without a session. The
+ * simulation controls and the other actuator endpoints are unaffected.
+ */
+@Configuration
+public class ProfilingSecurityConfig {
+
+    @Bean
+    public SecurityFilterChain profilingSecurityFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(EndpointRequest.to(JfrRecordingEndpoint.class))
+                .authorizeHttpRequests(requests -> requests.anyRequest().hasRole("PROFILER"))
+                .httpBasic(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.producer.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("com.example.producer.SensorSend")
+@Label("Sensor Send")
+@Category({"Sensor Pipeline", "Producer"})
+@Description("Serializing one reading and handing it to the Kafka producer; blocks while the producer buffer is full")
+@StackTrace(false)
+@Setter
+public class SensorSendEvent extends Event {
+
+    @Label("Sensor ID")
+    private String sensorId;
+
+    @Label("Topic")
+    private String topic;
+}
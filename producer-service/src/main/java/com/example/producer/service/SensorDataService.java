@@ -1,20 +1,27 @@
 package com.example.producer.service;
 
 import com.example.producer.model.SensorReading;
+import com.example.producer.profiling.SensorSendEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -25,9 +32,16 @@ import java.util.concurrent.atomic.AtomicLong;
 @Slf4j
 public class SensorDataService {
 
+    // Epoch millis at which a reading was generated, as a decimal string; the consumer-service
+    // measures end-to-end ingest latency from it
+    public static final String ORIGIN_TIMESTAMP_HEADER = "sensor-origin-ts";
+
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${sensor.topic}")
     private String sensorTopic;
 
@@ -48,6 +62,10 @@ public class SensorDataService {
     // Track simulation start time
     private Long simulationStartTime;
 
+    private Timer sendTimer;
+    private Timer ackTimer;
+    private Timer failedAckTimer;
+
     public SensorDataService() {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
@@ -55,6 +73,22 @@ public class SensorDataService {
 
     @PostConstruct
     public void initialize() {
+        // send is the time spent handing a record to the client (blocks while its buffer is full),
+        // ack the time until the broker acknowledged it
+        sendTimer = Timer.builder("sensor.producer.send")
+                .description("Time to hand a reading to the Kafka producer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        ackTimer = Timer.builder("sensor.producer.ack")
+                .description("Time from send until the broker acknowledged a reading")
+                .tag("result", "success")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        failedAckTimer = Timer.builder("sensor.producer.ack")
+                .description("Time from send until the broker acknowledged a reading")
+                .tag("result", "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
         log.info("Sensor data service initialized");
         // Auto-start disabled by default - use /start endpoint instead
         // startSimulation();
@@ -84,6 +118,7 @@ public class SensorDataService {
         
         while (!Thread.currentThread().isInterrupted() && running.get()) {
             try {
+                long originMillis = System.currentTimeMillis();
                 // Generate sensor readings with some random variation
                 double temperature = 20 + (random.nextGaussian() * 5); 
                 double pressure = 1013.25 + (random.nextGaussian() * 100); 
@@ -104,20 +139,35 @@ public class SensorDataService {
                     location
                 );
 
+                SensorSendEvent sendEvent = new SensorSendEvent();
+                sendEvent.begin();
                 String jsonMessage = objectMapper.writeValueAsString(reading);
+                ProducerRecord<String, String> record = new ProducerRecord<>(sensorTopic, sensorIdStr, jsonMessage);
+                record.headers().add(ORIGIN_TIMESTAMP_HEADER,
+                        Long.toString(originMillis).getBytes(StandardCharsets.UTF_8));
                 
                 // Send to Kafka
-                kafkaTemplate.send(sensorTopic, sensorIdStr, jsonMessage)
-                    .whenComplete((result, ex) -> {
-                        if (ex == null) {
-                            log.debug("Sent data for sensor {}: temp={}°C, pressure={}hPa", 
-                                      sensorIdStr, finalTemperature, finalPressure);
-                            messagesSent.incrementAndGet();
-                        } else {
-                            log.error("Failed to send data for sensor {}: {}", 
-                                     sensorIdStr, ex.getMessage());
-                        }
-                    });
+                long sendStart = System.nanoTime();
+                CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(record);
+                sendTimer.record(System.nanoTime() - sendStart, TimeUnit.NANOSECONDS);
+                sendEvent.end();
+                if (sendEvent.shouldCommit()) {
+                    sendEvent.setSensorId(sensorIdStr);
+                    sendEvent.setTopic(sensorTopic);
+                    sendEvent.commit();
+                }
+                future.whenComplete((result, ex) -> {
+                    (ex == null ? ackTimer : failedAckTimer)
+                            .record(System.nanoTime() - sendStart, TimeUnit.NANOSECONDS);
+                    if (ex == null) {
+                        log.debug("Sent data for sensor {}: temp={}°C, pressure={}hPa", 
+                                  sensorIdStr, finalTemperature, finalPressure);
+                        messagesSent.incrementAndGet();
+                    } else {
+                        log.error("Failed to send data for sensor {}: {}", 
+                                 sensorIdStr, ex.getMessage());
+                    }
+                });
 
                 Thread.sleep(sensorInterval);
                 
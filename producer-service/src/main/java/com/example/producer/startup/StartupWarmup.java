@@ -0,0 +1,92 @@
+package com.example.producer.startup;
+
+import com.example.producer.model.SensorReading;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the send hot path before the instance reports itself ready: serializes
+ * readings the way the simulation does and opens the Kafka producer, fetching
+ * the sensor topic's metadata, so the first readings sent after /start do not
+ * wait for it. Kafka is given at most the warm-up timeout.
+ *
+ * In the fast-start build's CDS training run (sensor.startup.training-run=true)
+ * the application serializes the readings and exits before this runner, so
+ * the Kafka client classes are left out of the archive.
+ */
+@Component
+@Slf4j
+public class StartupWarmup implements ApplicationRunner {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${sensor.warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${sensor.warmup.iterations}")
+    private int iterations;
+
+    @Value("${sensor.warmup.timeout}")
+    private Duration timeout;
+
+    @Value("${sensor.topic}")
+    private String sensorTopic;
+
+    @Value("${sensor.startup.training-run}")
+    private boolean trainingRun;
+
+    private final ObjectMapper objectMapper;
+
+    public StartupWarmup() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @EventListener
+    public void exitAfterTrainingRun(ApplicationStartedEvent event) throws Exception {
+        if (trainingRun) {
+            serializeReadings();
+            log.info("Training run serialized {} readings, exiting", iterations);
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            serializeReadings();
+            CompletableFuture.runAsync(() -> kafkaTemplate.partitionsFor(sensorTopic))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Warm-up finished in {} ms ({} codec iterations)",
+                    (System.nanoTime() - start) / 1_000_000, iterations);
+        } catch (Exception e) {
+            log.warn("Warm-up stopped early: {}", e.toString());
+        }
+    }
+
+    private void serializeReadings() throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValueAsString(new SensorReading(String.valueOf(100 + i % 100), "TEMP_PRESSURE",
+                    20 + i % 10, 1000 + i % 50, "warmup"));
+        }
+    }
+}